@@ -0,0 +1,62 @@
+package org.ding.benchmark;
+
+import org.ding.DingDependency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * first get() of a singleton bean after it has been registered, with and without an injected dependency
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreationBenchmark {
+    private Supplier<StringBuilder> bean;
+    private Supplier<StringBuilder> parent;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        dingManager.deleteAllBeans();
+        dingManager.addSingletonBean("string", () -> "Hello", String.class);
+        dingManager.addSingletonBean("bean", StringBuilder::new, StringBuilder.class);
+        dingManager.addSingletonBean("parent", StringBuilder::new, StringBuilder.class,
+                new DingDependency<>("string", StringBuilder::append, String.class));
+        bean = dingManager.getBean("bean", StringBuilder.class);
+        parent = dingManager.getBean("parent", StringBuilder.class);
+    }
+
+    // replacing the beans removes the existing instances
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        dingManager.addSingletonBean("bean", StringBuilder::new, StringBuilder.class);
+        dingManager.addSingletonBean("parent", StringBuilder::new, StringBuilder.class,
+                new DingDependency<>("string", StringBuilder::append, String.class));
+    }
+
+    @Benchmark
+    public StringBuilder create() {
+        return bean.get();
+    }
+
+    @Benchmark
+    public StringBuilder createWithDependency() {
+        return parent.get();
+    }
+}
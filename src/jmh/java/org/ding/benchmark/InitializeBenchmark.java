@@ -0,0 +1,56 @@
+package org.ding.benchmark;
+
+import org.ding.DingDependency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * initializeSingletons() of freshly registered graphs that consist of chains of beans where every bean depends on its
+ * predecessor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitializeBenchmark {
+    @Param({"10", "100", "1000"})
+    private int beanCount;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        dingManager.deleteAllBeans();
+        for (int i = 0; i < beanCount; i++) {
+            if (i % depth == 0) {
+                dingManager.addSingletonBean("bean" + i, StringBuilder::new, StringBuilder.class);
+            } else {
+                dingManager.addSingletonBean("bean" + i, StringBuilder::new, StringBuilder.class,
+                        new DingDependency<StringBuilder, StringBuilder>("bean" + (i - 1),
+                                (bean, dependency) -> bean.append('.'), StringBuilder.class));
+            }
+        }
+    }
+
+    @Benchmark
+    public void initializeSingletons() {
+        dingManager.initializeSingletons();
+    }
+}
@@ -0,0 +1,78 @@
+package org.ding.benchmark;
+
+import org.ding.DingKey;
+import org.ding.DingName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.ding.DingKey.dingKey;
+import static org.ding.DingManager.dingManager;
+import static org.ding.DingName.dingName;
+
+/**
+ * getBean() lookups by String and by DingName and get() by DingKey with a single and with several threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private static final String NAMESPACE = "https://github.com/torstenwerner/ding";
+
+    private final DingName dingName = dingName(NAMESPACE, "bean");
+
+    private final DingKey<CharSequence> dingKey = dingKey(dingName, CharSequence.class);
+
+    @Setup
+    public void setup() {
+        dingManager.deleteAllBeans();
+        dingManager.addSingletonBean("bean", StringBuilder::new, StringBuilder.class);
+        dingManager.addSingletonBean(dingName, StringBuilder::new, StringBuilder.class);
+    }
+
+    @Benchmark
+    public Supplier<CharSequence> byString() {
+        return dingManager.getBean("bean", CharSequence.class);
+    }
+
+    @Benchmark
+    public Supplier<CharSequence> byDingName() {
+        return dingManager.getBean(dingName, CharSequence.class);
+    }
+
+    @Benchmark
+    public Supplier<CharSequence> byNewDingName() {
+        return dingManager.getBean(dingName(NAMESPACE, "bean"), CharSequence.class);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Supplier<CharSequence> byDingName16Threads() {
+        return dingManager.getBean(dingName, CharSequence.class);
+    }
+
+    @Benchmark
+    public CharSequence byDingKey() {
+        return dingManager.get(dingKey);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public CharSequence byDingKey16Threads() {
+        return dingManager.get(dingKey);
+    }
+}
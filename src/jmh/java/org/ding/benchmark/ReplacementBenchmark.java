@@ -0,0 +1,53 @@
+package org.ding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * get() of a singleton bean by several readers while another thread keeps replacing it
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplacementBenchmark {
+    private Supplier<StringBuilder> bean;
+
+    @Setup
+    public void setup() {
+        dingManager.deleteAllBeans();
+        dingManager.addSingletonBean("bean", StringBuilder::new, StringBuilder.class);
+        bean = dingManager.getBean("bean", StringBuilder.class);
+    }
+
+    @Benchmark
+    @Group("replace")
+    @GroupThreads(3)
+    public StringBuilder read() {
+        return bean.get();
+    }
+
+    @Benchmark
+    @Group("replace")
+    @GroupThreads(1)
+    public void replace() {
+        dingManager.addSingletonBean("bean", StringBuilder::new, StringBuilder.class);
+    }
+}
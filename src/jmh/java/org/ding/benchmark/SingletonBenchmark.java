@@ -0,0 +1,63 @@
+package org.ding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * get() of an existing singleton bean with an increasing number of threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingletonBenchmark {
+    private Supplier<StringBuilder> bean;
+
+    @Setup
+    public void setup() {
+        dingManager.deleteAllBeans();
+        dingManager.addSingletonBean("bean", StringBuilder::new, StringBuilder.class);
+        bean = dingManager.getBean("bean", StringBuilder.class);
+        bean.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public StringBuilder get01Thread() {
+        return bean.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public StringBuilder get04Threads() {
+        return bean.get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public StringBuilder get16Threads() {
+        return bean.get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public StringBuilder get64Threads() {
+        return bean.get();
+    }
+}
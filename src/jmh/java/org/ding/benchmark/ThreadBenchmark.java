@@ -0,0 +1,50 @@
+package org.ding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * get() of a thread bean that has already been created for the calling thread
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadBenchmark {
+    private Supplier<StringBuilder> bean;
+
+    @Setup
+    public void setup() {
+        dingManager.deleteAllBeans();
+        dingManager.addThreadBean("bean", StringBuilder::new, StringBuilder.class);
+        bean = dingManager.getBean("bean", StringBuilder.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public StringBuilder get01Thread() {
+        return bean.get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public StringBuilder get16Threads() {
+        return bean.get();
+    }
+}
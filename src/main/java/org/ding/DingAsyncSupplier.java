@@ -0,0 +1,54 @@
+package org.ding;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Wraps the supplier of an asynchronous singleton. DingManager recognizes asynchronous beans by this class and never
+ * calls get() because it shares a single creation between all callers.
+ */
+class DingAsyncSupplier<BeanType> implements Supplier<BeanType> {
+    private final Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier;
+
+    public DingAsyncSupplier(Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier) {
+        this.asyncSupplier = asyncSupplier;
+    }
+
+    public CompletableFuture<BeanType> getAsync() {
+        final CompletionStage<? extends BeanType> stage = asyncSupplier.get();
+        if (stage == null) {
+            throw new RuntimeException("asynchronous supplier returned null instead of a CompletionStage");
+        }
+        return stage.<BeanType>thenApply(bean -> bean).toCompletableFuture();
+    }
+
+    @Override
+    public BeanType get() {
+        return join(getAsync());
+    }
+
+    /**
+     * waits for the future and rethrows the original exception instead of a CompletionException
+     */
+    public static <BeanType> BeanType join(CompletableFuture<BeanType> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    public static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+    }
+}
@@ -0,0 +1,123 @@
+package org.ding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import static org.ding.DingName.dingName;
+import static org.ding.DingScope.SCOPE_CACHED;
+import static org.ding.DingScope.SCOPE_POOLED;
+import static org.ding.DingScope.SCOPE_SINGLETON;
+import static org.ding.DingScope.SCOPE_THREAD;
+import static org.ding.DingScope.SCOPE_UNIT;
+
+/**
+ * Collects registrations that are validated and applied atomically by commit(). Readers never see a partially
+ * registered batch and dependent singletons are reset once for the whole batch. Unlike single registrations all
+ * dependencies must exist either in the registry or in the batch.
+ * <pre>
+ *     dingManager.batch()
+ *         .addSingletonBean("string", () -&gt; "Hello", String.class)
+ *         .addSingletonBean("stringBuilder", StringBuilder::new, StringBuilder.class,
+ *             new DingDependency&lt;&gt;("string", StringBuilder::append, String.class))
+ *         .commit();
+ * </pre>
+ * A batch is not thread safe.
+ */
+public class DingBatch {
+    private final DingManager manager;
+    private final List<DingRegistration<?>> registrations = new ArrayList<>();
+
+    DingBatch(DingManager manager) {
+        this.manager = manager;
+    }
+
+    public <BeanType> DingBatch addSingletonBean(DingName dingName, Supplier<BeanType> supplier,
+                                                 Class<? extends BeanType> beanClass,
+                                                 DingDependency<BeanType, ? extends Object>... dependencies) {
+        registrations.add(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_SINGLETON, null, dependencies));
+        return this;
+    }
+
+    public <BeanType> DingBatch addSingletonBean(String beanName, Supplier<BeanType> supplier,
+                                                 Class<? extends BeanType> beanClass,
+                                                 DingDependency<BeanType, ? extends Object>... dependencies) {
+        return addSingletonBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    public <BeanType> DingBatch addAsyncSingletonBean(
+            DingName dingName, Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier,
+            Class<? extends BeanType> beanClass, DingDependency<BeanType, ? extends Object>... dependencies) {
+        registrations.add(new DingRegistration<>(dingName, new DingAsyncSupplier<>(asyncSupplier), beanClass,
+                SCOPE_SINGLETON, null, dependencies));
+        return this;
+    }
+
+    public <BeanType> DingBatch addAsyncSingletonBean(
+            String beanName, Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier,
+            Class<? extends BeanType> beanClass, DingDependency<BeanType, ? extends Object>... dependencies) {
+        return addAsyncSingletonBean(dingName(beanName), asyncSupplier, beanClass, dependencies);
+    }
+
+    public <BeanType> DingBatch addThreadBean(DingName dingName, Supplier<BeanType> supplier,
+                                              Class<? extends BeanType> beanClass,
+                                              DingDependency<BeanType, ? extends Object>... dependencies) {
+        registrations.add(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_THREAD, null, dependencies));
+        return this;
+    }
+
+    public <BeanType> DingBatch addThreadBean(String beanName, Supplier<BeanType> supplier,
+                                              Class<? extends BeanType> beanClass,
+                                              DingDependency<BeanType, ? extends Object>... dependencies) {
+        return addThreadBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    public <BeanType> DingBatch addUnitBean(DingName dingName, Supplier<BeanType> supplier,
+                                            Class<? extends BeanType> beanClass,
+                                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        registrations.add(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_UNIT, null, dependencies));
+        return this;
+    }
+
+    public <BeanType> DingBatch addUnitBean(String beanName, Supplier<BeanType> supplier,
+                                            Class<? extends BeanType> beanClass,
+                                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        return addUnitBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    public <BeanType> DingBatch addCachedBean(DingName dingName, Supplier<BeanType> supplier,
+                                              Class<? extends BeanType> beanClass, DingCacheConfig config,
+                                              DingDependency<BeanType, ? extends Object>... dependencies) {
+        registrations.add(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_CACHED, null, config,
+                dependencies));
+        return this;
+    }
+
+    public <BeanType> DingBatch addCachedBean(String beanName, Supplier<BeanType> supplier,
+                                              Class<? extends BeanType> beanClass, DingCacheConfig config,
+                                              DingDependency<BeanType, ? extends Object>... dependencies) {
+        return addCachedBean(dingName(beanName), supplier, beanClass, config, dependencies);
+    }
+
+    public <BeanType> DingBatch addPooledBean(DingName dingName, Supplier<BeanType> supplier,
+                                              Class<? extends BeanType> beanClass, DingPoolConfig config,
+                                              DingDependency<BeanType, ? extends Object>... dependencies) {
+        registrations.add(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_POOLED, config, dependencies));
+        return this;
+    }
+
+    public <BeanType> DingBatch addPooledBean(String beanName, Supplier<BeanType> supplier,
+                                              Class<? extends BeanType> beanClass, DingPoolConfig config,
+                                              DingDependency<BeanType, ? extends Object>... dependencies) {
+        return addPooledBean(dingName(beanName), supplier, beanClass, config, dependencies);
+    }
+
+    /**
+     * validates and applies all registrations, nothing is applied if the validation fails
+     */
+    public void commit() {
+        manager.register(registrations);
+        registrations.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package org.ding;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a single bean. LongAdder is used so that concurrent updates do not contend.
+ */
+class DingBeanMetrics {
+    static final int HISTOGRAM_BUCKETS = 24;
+
+    private final DingName name;
+    private final LongAdder creationCount = new LongAdder();
+    private final LongAdder creationNanos = new LongAdder();
+    private final LongAdder[] creationHistogram = new LongAdder[HISTOGRAM_BUCKETS];
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder replacementCount = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final LongAdder estimatedGetCount = new LongAdder();
+
+    public DingBeanMetrics(DingName name) {
+        this.name = name;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            creationHistogram[i] = new LongAdder();
+        }
+    }
+
+    public void recordCreation(long nanos) {
+        creationCount.increment();
+        creationNanos.add(nanos);
+        final int bucket = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+        creationHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)].increment();
+    }
+
+    public void recordFailure(long nanos) {
+        failureCount.increment();
+        creationNanos.add(nanos);
+    }
+
+    public void recordReplacement() {
+        replacementCount.increment();
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWaitNanos.add(nanos);
+    }
+
+    public void recordGets(int count) {
+        estimatedGetCount.add(count);
+    }
+
+    public void reset() {
+        creationCount.reset();
+        creationNanos.reset();
+        for (LongAdder bucket : creationHistogram) {
+            bucket.reset();
+        }
+        failureCount.reset();
+        replacementCount.reset();
+        lockWaitNanos.reset();
+        estimatedGetCount.reset();
+    }
+
+    public DingBeanStatistics getStatistics() {
+        final long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = creationHistogram[i].sum();
+        }
+        return new DingBeanStatistics(name.toString(), creationCount.sum(), creationNanos.sum(), histogram,
+                failureCount.sum(), replacementCount.sum(), lockWaitNanos.sum(), estimatedGetCount.sum());
+    }
+}
@@ -0,0 +1,82 @@
+package org.ding;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable snapshot of the metrics of a single bean.
+ */
+public class DingBeanStatistics {
+    private final String name;
+    private final long creationCount;
+    private final long creationNanos;
+    private final long[] creationHistogram;
+    private final long failureCount;
+    private final long replacementCount;
+    private final long lockWaitNanos;
+    private final long estimatedGetCount;
+
+    @ConstructorProperties({"name", "creationCount", "creationNanos", "creationHistogram", "failureCount",
+            "replacementCount", "lockWaitNanos", "estimatedGetCount"})
+    public DingBeanStatistics(String name, long creationCount, long creationNanos, long[] creationHistogram,
+                              long failureCount, long replacementCount, long lockWaitNanos, long estimatedGetCount) {
+        this.name = name;
+        this.creationCount = creationCount;
+        this.creationNanos = creationNanos;
+        this.creationHistogram = creationHistogram;
+        this.failureCount = failureCount;
+        this.replacementCount = replacementCount;
+        this.lockWaitNanos = lockWaitNanos;
+        this.estimatedGetCount = estimatedGetCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of successful creations
+     */
+    public long getCreationCount() {
+        return creationCount;
+    }
+
+    /**
+     * @return total time spent in the supplier including failed creations
+     */
+    public long getCreationNanos() {
+        return creationNanos;
+    }
+
+    /**
+     * @return number of creations per latency bucket, bucket i counts latencies below 2^i microseconds and the last
+     * bucket counts all longer latencies
+     */
+    public long[] getCreationHistogram() {
+        return creationHistogram.clone();
+    }
+
+    /**
+     * @return number of times the supplier has thrown an exception or returned an incompatible bean
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public long getReplacementCount() {
+        return replacementCount;
+    }
+
+    /**
+     * @return total time threads have waited for a concurrent creation of the bean
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos;
+    }
+
+    /**
+     * @return number of sampled get() calls multiplied with the sample rate
+     */
+    public long getEstimatedGetCount() {
+        return estimatedGetCount;
+    }
+}
@@ -0,0 +1,75 @@
+package org.ding;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Immutable configuration of a cached bean. It is created with cacheConfig() and adjusted with the other methods,
+ * e.g. cacheConfig().expireAfterWrite(1, HOURS).refreshAfterWrite(10, MINUTES).softValues().
+ */
+public class DingCacheConfig {
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final boolean softValues;
+
+    private DingCacheConfig(long expireAfterWriteNanos, long refreshAfterWriteNanos, boolean softValues) {
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        this.softValues = softValues;
+    }
+
+    /**
+     * @return a configuration that keeps the bean until it is evicted because of the limit of cached beans
+     */
+    public static DingCacheConfig cacheConfig() {
+        return new DingCacheConfig(0, 0, false);
+    }
+
+    /**
+     * @param duration time after the creation when the bean is discarded and created again by the next get()
+     */
+    public DingCacheConfig expireAfterWrite(long duration, TimeUnit unit) {
+        return new DingCacheConfig(positiveNanos(duration, unit), refreshAfterWriteNanos, softValues);
+    }
+
+    /**
+     * @param duration time after the creation when the next get() starts to create a new bean in the background and
+     *                 still returns the old bean
+     */
+    public DingCacheConfig refreshAfterWrite(long duration, TimeUnit unit) {
+        return new DingCacheConfig(expireAfterWriteNanos, positiveNanos(duration, unit), softValues);
+    }
+
+    /**
+     * keeps the bean softly reachable only so that the garbage collector may discard it under memory pressure
+     */
+    public DingCacheConfig softValues() {
+        return new DingCacheConfig(expireAfterWriteNanos, refreshAfterWriteNanos, true);
+    }
+
+    /**
+     * @return 0 if the bean never expires
+     */
+    public long getExpireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    /**
+     * @return 0 if the bean is never refreshed
+     */
+    public long getRefreshAfterWriteNanos() {
+        return refreshAfterWriteNanos;
+    }
+
+    public boolean isSoftValues() {
+        return softValues;
+    }
+
+    private static long positiveNanos(long duration, TimeUnit unit) {
+        if (duration <= 0) {
+            throw new RuntimeException(format("duration must be positive but is %d", duration));
+        }
+        return unit.toNanos(duration);
+    }
+}
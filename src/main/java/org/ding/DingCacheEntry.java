@@ -0,0 +1,67 @@
+package org.ding;
+
+import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The bean of a cached slot together with its creation time. An entry is replaced as a whole, only its lifetime is
+ * shortened to the lifetime of the cached beans that are injected into the bean.
+ */
+class DingCacheEntry {
+    // either the bean or a SoftReference to it
+    private final Object value;
+    private final long writeNanos;
+    // Long.MAX_VALUE if the bean never expires
+    private volatile long lifetimeNanos;
+    private final DingCacheConfig config;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    public DingCacheEntry(Object bean, DingCacheConfig config) {
+        this.value = config.isSoftValues() ? new SoftReference<>(bean) : bean;
+        this.writeNanos = System.nanoTime();
+        this.lifetimeNanos = config.getExpireAfterWriteNanos() > 0 ? config.getExpireAfterWriteNanos() : Long.MAX_VALUE;
+        this.config = config;
+    }
+
+    /**
+     * @return the bean or null if it has expired or has been collected
+     */
+    public Object get(long nowNanos) {
+        if (nowNanos - writeNanos >= lifetimeNanos) {
+            return null;
+        }
+        return value instanceof SoftReference ? ((SoftReference<?>) value).get() : value;
+    }
+
+    /**
+     * lets the bean expire no later than a cached bean that has been injected into it
+     */
+    public void limitLifetime(DingCacheEntry dependency) {
+        if (dependency.lifetimeNanos != Long.MAX_VALUE) {
+            lifetimeNanos = Math.min(lifetimeNanos, dependency.writeNanos - writeNanos + dependency.lifetimeNanos);
+        }
+    }
+
+    /**
+     * lets the bean expire immediately
+     */
+    public void expire() {
+        lifetimeNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return true for the single caller that has to refresh the bean
+     */
+    public boolean startRefresh(long nowNanos) {
+        final long refreshAfterWriteNanos = config.getRefreshAfterWriteNanos();
+        return refreshAfterWriteNanos > 0 && nowNanos - writeNanos >= refreshAfterWriteNanos
+                && !refreshing.get() && refreshing.compareAndSet(false, true);
+    }
+
+    /**
+     * allows another refresh after a failed one
+     */
+    public void refreshFailed() {
+        refreshing.set(false);
+    }
+}
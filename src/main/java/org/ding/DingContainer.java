@@ -0,0 +1,199 @@
+package org.ding;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+import static org.ding.DingName.dingName;
+import static org.ding.DingScope.SCOPE_SINGLETON;
+import static org.ding.DingScope.SCOPE_THREAD;
+import static org.ding.DingScope.SCOPE_UNIT;
+
+/**
+ * Child of the DingManager or of another container that is forked by fork() in constant time:
+ * <pre>
+ *     final DingContainer tenant = dingManager.fork();
+ *     tenant.addSingletonBean("dataSource", TenantDataSource::new, DataSource.class);
+ *     final Supplier&lt;UserService&gt; userService = tenant.getBean("userService", UserService.class);
+ * </pre>
+ * A child shares the definitions and the beans of its parent until it adds a bean of the same name. Lookups are
+ * resolved by the child first and fall back to the parent. When a bean is added the child gets its own copies of
+ * the beans of its parent that depend on it through a DingDependency so that these copies get the child's bean
+ * injected. The copies follow later replacements in the parents and beans that the parents add later are copied as
+ * well if they depend on a bean of the child. Pooled beans cannot be added to a child and are always shared with the
+ * DingManager.
+ * <p>
+ * A child that has not added any bean needs a few bytes only and it is released by the garbage collector like any
+ * other object. Children are thread safe.
+ */
+public final class DingContainer {
+    private final DingContainer parent;
+
+    // the beans of this child including the copies of dependents, is replaced as a whole while holding the lock of
+    // the DingManager and read without lock
+    private volatile Map<DingName, DingMetadata<?>> metadataMap = Collections.emptyMap();
+
+    // names of the beans in the metadataMap that are copies of the beans of the parents, must be protected by the lock
+    // of the DingManager
+    private Set<DingName> copies = Collections.emptySet();
+
+    // names of the beans in the metadataMap by the names of their dependencies, must be protected by the lock of the
+    // DingManager
+    private Map<DingName, Set<DingName>> dependentsMap = Collections.emptyMap();
+
+    // the thread and unit bean indexes taken by this child or null, must be protected by the lock of the DingManager
+    private DingIndexes indexes;
+
+    DingContainer(DingContainer parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return a new child of this container
+     */
+    public DingContainer fork() {
+        return new DingContainer(this);
+    }
+
+    /**
+     * @return the parent container or null if the parent is the DingManager
+     */
+    public DingContainer getParent() {
+        return parent;
+    }
+
+    /**
+     * adds or replaces a singleton bean of this container, see DingManager.addSingletonBean()
+     */
+    public <BeanType> void addSingletonBean(DingName dingName, Supplier<BeanType> supplier,
+                                            Class<? extends BeanType> beanClass,
+                                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        dingManager.register(this, new DingRegistration<>(dingName, supplier, beanClass, SCOPE_SINGLETON, null,
+                dependencies));
+    }
+
+    public <BeanType> void addSingletonBean(String beanName, Supplier<BeanType> supplier,
+                                            Class<? extends BeanType> beanClass,
+                                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        addSingletonBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    /**
+     * adds or replaces an asynchronous singleton bean of this container, see DingManager.addAsyncSingletonBean()
+     */
+    public <BeanType> void addAsyncSingletonBean(DingName dingName,
+                                                 Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier,
+                                                 Class<? extends BeanType> beanClass,
+                                                 DingDependency<BeanType, ? extends Object>... dependencies) {
+        dingManager.register(this, new DingRegistration<>(dingName, new DingAsyncSupplier<>(asyncSupplier),
+                beanClass, SCOPE_SINGLETON, null, dependencies));
+    }
+
+    public <BeanType> void addAsyncSingletonBean(String beanName,
+                                                 Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier,
+                                                 Class<? extends BeanType> beanClass,
+                                                 DingDependency<BeanType, ? extends Object>... dependencies) {
+        addAsyncSingletonBean(dingName(beanName), asyncSupplier, beanClass, dependencies);
+    }
+
+    /**
+     * adds or replaces a thread bean of this container, see DingManager.addThreadBean()
+     */
+    public <BeanType> void addThreadBean(DingName dingName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        dingManager.register(this, new DingRegistration<>(dingName, supplier, beanClass, SCOPE_THREAD, null,
+                dependencies));
+    }
+
+    public <BeanType> void addThreadBean(String beanName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        addThreadBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    /**
+     * adds or replaces a unit bean of this container, see DingManager.addUnitBean()
+     */
+    public <BeanType> void addUnitBean(DingName dingName, Supplier<BeanType> supplier,
+                                       Class<? extends BeanType> beanClass,
+                                       DingDependency<BeanType, ? extends Object>... dependencies) {
+        dingManager.register(this, new DingRegistration<>(dingName, supplier, beanClass, SCOPE_UNIT, null,
+                dependencies));
+    }
+
+    public <BeanType> void addUnitBean(String beanName, Supplier<BeanType> supplier,
+                                       Class<? extends BeanType> beanClass,
+                                       DingDependency<BeanType, ? extends Object>... dependencies) {
+        addUnitBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    /**
+     * Fetches a supplier for a bean of this container or of one of its parents. The supplier follows beans that are
+     * added to this container or to one of its parents later.
+     *
+     * @param dingName  unique name of the bean
+     * @param beanClass type or a subtype of the registered bean
+     * @return a supplier that can be used to fetch the actual bean
+     */
+    public <BeanType> Supplier<BeanType> getBean(DingName dingName, Class<? extends BeanType> beanClass) {
+        return dingManager.getBean(this, dingName, beanClass);
+    }
+
+    public <BeanType> Supplier<BeanType> getBean(String beanName, Class<? extends BeanType> beanClass) {
+        return getBean(dingName(beanName), beanClass);
+    }
+
+    /**
+     * @return the bean that has been added to this container itself or null
+     */
+    DingMetadata<?> getMetadata(DingName dingName) {
+        return metadataMap.get(dingName);
+    }
+
+    Map<DingName, DingMetadata<?>> getMetadataMap() {
+        return metadataMap;
+    }
+
+    // must be called with the lock of the DingManager held
+    Set<DingName> getCopies() {
+        return copies;
+    }
+
+    // must be called with the lock of the DingManager held
+    Set<DingName> getDependents(DingName dingName) {
+        return dependentsMap.getOrDefault(dingName, Collections.emptySet());
+    }
+
+    // the names of the beans and of their dependencies, must be called with the lock of the DingManager held
+    Set<DingName> getIndexedNames() {
+        final Set<DingName> indexedNames = new HashSet<>(metadataMap.keySet());
+        indexedNames.addAll(dependentsMap.keySet());
+        return indexedNames;
+    }
+
+    // must be called with the lock of the DingManager held
+    void setMetadataMap(Map<DingName, DingMetadata<?>> metadataMap, Set<DingName> copies) {
+        final Map<DingName, Set<DingName>> dependentsMap = new HashMap<>();
+        metadataMap.values().forEach(metadata -> metadata.getDependencies().forEach(dependency ->
+                dependentsMap.computeIfAbsent(dependency.getName(), name -> new HashSet<>()).add(metadata.getName())));
+        this.metadataMap = Collections.unmodifiableMap(metadataMap);
+        this.copies = copies;
+        this.dependentsMap = dependentsMap;
+    }
+
+    // must be called with the lock of the DingManager held
+    DingIndexes getIndexes() {
+        return indexes;
+    }
+
+    // must be called with the lock of the DingManager held
+    void setIndexes(DingIndexes indexes) {
+        this.indexes = indexes;
+    }
+}
@@ -0,0 +1,26 @@
+package org.ding;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes competing creators of a single bean. The lock belongs to the DingSlot of the bean and is kept when the
+ * bean is replaced.
+ */
+class DingCreationLock extends ReentrantLock {
+    private static final long serialVersionUID = 1L;
+
+    private final DingName name;
+
+    public DingCreationLock(DingName name) {
+        this.name = name;
+    }
+
+    public DingName getName() {
+        return name;
+    }
+
+    @Override
+    public Thread getOwner() {
+        return super.getOwner();
+    }
+}
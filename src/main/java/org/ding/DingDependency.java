@@ -1,22 +1,51 @@
 package org.ding;
 
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 public class DingDependency<TargetType, DependencyType> {
     private final DingName name;
     private final BiConsumer<TargetType, DependencyType> consumer;
     private final Class<? extends DependencyType> beanClass;
+    private final boolean handle;
 
     public DingDependency(DingName name, BiConsumer<TargetType, DependencyType> consumer, Class<? extends DependencyType> beanClass) {
-        this.name = name;
-        this.consumer = consumer;
-        this.beanClass = beanClass;
+        this(name, consumer, beanClass, false);
     }
 
     public DingDependency(String name, BiConsumer<TargetType, DependencyType> consumer, Class<? extends DependencyType> beanClass) {
         this(DingName.dingName(name), consumer, beanClass);
     }
 
+    private DingDependency(DingName name, BiConsumer<TargetType, DependencyType> consumer, Class<?> beanClass,
+                           boolean handle) {
+        this.name = name;
+        this.consumer = consumer;
+        this.beanClass = (Class<? extends DependencyType>) beanClass;
+        this.handle = handle;
+    }
+
+    /**
+     * Creates a dependency that injects a stable handle instead of the bean. The handle fetches the current bean on
+     * every get() so that the target is neither reset nor created again when the dependency is replaced:
+     * <pre>
+     *     dingManager.addSingletonBean("service", Service::new, Service.class,
+     *             dingHandle("config", Service::setConfig, Config.class));
+     * </pre>
+     * The dependency is not created before the first get() of the handle.
+     */
+    public static <TargetType, DependencyType> DingDependency<TargetType, Supplier<DependencyType>> dingHandle(
+            DingName name, BiConsumer<TargetType, Supplier<DependencyType>> consumer,
+            Class<? extends DependencyType> beanClass) {
+        return new DingDependency<>(name, consumer, beanClass, true);
+    }
+
+    public static <TargetType, DependencyType> DingDependency<TargetType, Supplier<DependencyType>> dingHandle(
+            String name, BiConsumer<TargetType, Supplier<DependencyType>> consumer,
+            Class<? extends DependencyType> beanClass) {
+        return dingHandle(DingName.dingName(name), consumer, beanClass);
+    }
+
     public DingName getName() {
         return name;
     }
@@ -25,7 +54,17 @@ public class DingDependency<TargetType, DependencyType> {
         return consumer;
     }
 
+    /**
+     * @return the class of the bean, which is the class of the bean behind the handle for handles
+     */
     public Class<? extends DependencyType> getBeanClass() {
         return beanClass;
     }
+
+    /**
+     * @return true if a handle is injected instead of the bean
+     */
+    public boolean isHandle() {
+        return handle;
+    }
 }
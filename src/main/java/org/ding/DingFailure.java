@@ -0,0 +1,37 @@
+package org.ding;
+
+/**
+ * The last failure of a singleton that is kept by its slot until its backoff is over. A failure is never changed but
+ * replaced as a whole.
+ */
+class DingFailure {
+    private final Throwable cause;
+    private final int count;
+    private final long retryNanos;
+
+    /**
+     * @param count      number of consecutive failures including this one
+     * @param retryNanos System.nanoTime() when the next creation may be attempted
+     */
+    public DingFailure(Throwable cause, int count, long retryNanos) {
+        this.cause = cause;
+        this.count = count;
+        this.retryNanos = retryNanos;
+    }
+
+    public Throwable getCause() {
+        return cause;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isBackingOff(long nowNanos) {
+        return nowNanos - retryNanos < 0;
+    }
+
+    public long getRemainingNanos(long nowNanos) {
+        return Math.max(0, retryNanos - nowNanos);
+    }
+}
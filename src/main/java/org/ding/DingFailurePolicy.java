@@ -0,0 +1,59 @@
+package org.ding;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Immutable policy for singletons whose supplier has failed. It is set by DingManager.setFailurePolicy(), e.g.
+ * failurePolicy().backoff(100, 30_000, MILLISECONDS).
+ */
+public class DingFailurePolicy {
+    private final long initialBackoffNanos;
+    private final long maximumBackoffNanos;
+
+    private DingFailurePolicy(long initialBackoffNanos, long maximumBackoffNanos) {
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maximumBackoffNanos = maximumBackoffNanos;
+    }
+
+    /**
+     * @return a policy that retries the creation with every get() which is the default
+     */
+    public static DingFailurePolicy failurePolicy() {
+        return new DingFailurePolicy(0, 0);
+    }
+
+    /**
+     * Keeps a failure for the initial backoff and doubles the backoff with every consecutive failure up to the
+     * maximum. Callers get the kept failure immediately until the backoff is over, then a single caller retries.
+     */
+    public DingFailurePolicy backoff(long initialBackoff, long maximumBackoff, TimeUnit unit) {
+        if (initialBackoff <= 0 || maximumBackoff < initialBackoff) {
+            throw new RuntimeException(format("invalid backoff from %d to %d", initialBackoff, maximumBackoff));
+        }
+        return new DingFailurePolicy(unit.toNanos(initialBackoff), unit.toNanos(maximumBackoff));
+    }
+
+    /**
+     * @return 0 if failures are not kept
+     */
+    public long getInitialBackoffNanos() {
+        return initialBackoffNanos;
+    }
+
+    public long getMaximumBackoffNanos() {
+        return maximumBackoffNanos;
+    }
+
+    /**
+     * @param failures number of consecutive failures, at least 1
+     */
+    long getBackoffNanos(int failures) {
+        long backoffNanos = initialBackoffNanos;
+        for (int i = 1; i < failures && backoffNanos < maximumBackoffNanos; i++) {
+            backoffNanos *= 2;
+        }
+        return Math.min(backoffNanos, maximumBackoffNanos);
+    }
+}
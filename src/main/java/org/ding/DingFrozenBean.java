@@ -0,0 +1,46 @@
+package org.ding;
+
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * Immutable compiled form of a bean that is created by DingManager.freeze(). It is the supplier that getBean() returns
+ * and carries the validated metadata of the dependencies in the order of the DingDependencies.
+ */
+final class DingFrozenBean<BeanType> implements Supplier<BeanType> {
+    private final DingMetadata<BeanType> metadata;
+    private final DingSlot slot;
+    private final boolean singleton;
+    private final DingMetadata<?>[] dependencies;
+
+    public DingFrozenBean(DingMetadata<BeanType> metadata, DingMetadata<?>[] dependencies) {
+        this.metadata = metadata;
+        this.slot = metadata.getSlot();
+        this.singleton = metadata.getScope().equals(DingScope.SCOPE_SINGLETON);
+        this.dependencies = dependencies.clone();
+    }
+
+    public DingMetadata<BeanType> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return the metadata of the dependency at the index of its DingDependency
+     */
+    public DingMetadata<?> getDependency(int index) {
+        return dependencies[index];
+    }
+
+    // created singletons are read directly from their slot
+    @Override
+    public BeanType get() {
+        if (singleton) {
+            final BeanType bean = (BeanType) slot.getBean();
+            if (bean != null) {
+                return bean;
+            }
+        }
+        return dingManager.getFrozenBean(this);
+    }
+}
@@ -0,0 +1,28 @@
+package org.ding;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The thread and unit bean indexes that a child container has taken. They are recycled by the DingManager after the
+ * container has been collected. Threads and units keep the slots of their beans and thereby the container reachable
+ * so that an index is never recycled while a bean is still stored at it.
+ */
+class DingIndexes extends WeakReference<DingContainer> {
+    private final List<Integer> threadIndexes = new ArrayList<>();
+    private final List<Integer> unitIndexes = new ArrayList<>();
+
+    public DingIndexes(DingContainer container, ReferenceQueue<DingContainer> queue) {
+        super(container, queue);
+    }
+
+    public List<Integer> getThreadIndexes() {
+        return threadIndexes;
+    }
+
+    public List<Integer> getUnitIndexes() {
+        return unitIndexes;
+    }
+}
@@ -0,0 +1,30 @@
+package org.ding;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * is thrown by initializeSingletons() after all beans have been processed if at least one bean could not be created
+ */
+public class DingInitializationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<DingName, Throwable> failures;
+
+    public DingInitializationException(Map<DingName, Throwable> failures) {
+        super(format("failed to initialize beans %s", failures.keySet()));
+        // the failures are copied because background work might still record failures
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.failures.values().forEach(this::addSuppressed);
+    }
+
+    /**
+     * @return the cause of the failure for every bean that could not be created
+     */
+    public Map<DingName, Throwable> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,104 @@
+package org.ding;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import static org.ding.DingManager.dingManager;
+import static org.ding.DingName.dingName;
+
+/**
+ * Typed and interned key of a bean that is meant to be created once and kept in a static field:
+ * <pre>
+ *     private static final DingKey&lt;CharSequence&gt; HELLO = dingKey("hello", CharSequence.class);
+ *
+ *     System.out.println(HELLO.get().length());
+ * </pre>
+ * The key is resolved to the slot of the bean and the class is checked by the first lookup only. Later lookups are a
+ * few volatile reads without lock and allocation. Keys stay valid when the bean is replaced because the slot is kept
+ * and replacements must be subtypes of the registered class. Gets through keys are not counted by the metrics. Keys
+ * are interned weakly so that keys that are no longer used are collected together with their slot and class.
+ */
+public final class DingKey<BeanType> implements Supplier<BeanType> {
+    // the keys are held weakly by the map and by its values, must be protected by the map itself
+    private static final Map<DingKey<?>, WeakReference<DingKey<?>>> keys = new WeakHashMap<>();
+
+    private final DingName name;
+    private final Class<BeanType> beanClass;
+
+    // is null until the first lookup
+    private volatile DingSlot slot;
+
+    private DingKey(DingName name, Class<BeanType> beanClass) {
+        if (beanClass == null) {
+            throw new RuntimeException("bean class must not be null");
+        }
+        this.name = name;
+        this.beanClass = beanClass;
+    }
+
+    /**
+     * @return the interned key of the name and class
+     */
+    public static <BeanType> DingKey<BeanType> dingKey(DingName name, Class<BeanType> beanClass) {
+        final DingKey<BeanType> key = new DingKey<>(name, beanClass);
+        synchronized (keys) {
+            final WeakReference<DingKey<?>> reference = keys.get(key);
+            final DingKey<?> interned = reference != null ? reference.get() : null;
+            if (interned != null) {
+                return (DingKey<BeanType>) interned;
+            }
+            keys.put(key, new WeakReference<>(key));
+            return key;
+        }
+    }
+
+    public static <BeanType> DingKey<BeanType> dingKey(String name, Class<BeanType> beanClass) {
+        return dingKey(dingName(name), beanClass);
+    }
+
+    public DingName getName() {
+        return name;
+    }
+
+    public Class<BeanType> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * same as dingManager.get(key)
+     */
+    @Override
+    public BeanType get() {
+        return dingManager.get(this);
+    }
+
+    DingSlot getSlot() {
+        return slot;
+    }
+
+    void setSlot(DingSlot slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof DingKey)) return false;
+
+        final DingKey<?> dingKey = (DingKey<?>) other;
+
+        return name.equals(dingKey.name) && beanClass.equals(dingKey.beanClass);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + beanClass.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + beanClass.getName();
+    }
+}
@@ -0,0 +1,37 @@
+package org.ding;
+
+/**
+ * A bean borrowed from a DingPool. Closing the lease returns the bean to its pool, preferably with
+ * try-with-resources. The bean must not be used after the lease has been closed. A lease is meant to be used by a
+ * single thread.
+ */
+public class DingLease<BeanType> implements AutoCloseable {
+    private final DingPool<BeanType> pool;
+    private final Object origin;
+    private final BeanType bean;
+    private boolean closed;
+
+    DingLease(DingPool<BeanType> pool, Object origin, BeanType bean) {
+        this.pool = pool;
+        this.origin = origin;
+        this.bean = bean;
+    }
+
+    public BeanType get() {
+        if (closed) {
+            throw new RuntimeException("lease is closed");
+        }
+        return bean;
+    }
+
+    /**
+     * returns the bean to its pool, calling it again has no effect
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            pool.release(origin, bean);
+        }
+    }
+}
@@ -1,256 +1,2758 @@
 package org.ding;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.ding.DingName.dingName;
+import static org.ding.DingScope.SCOPE_CACHED;
+import static org.ding.DingScope.SCOPE_POOLED;
 import static org.ding.DingScope.SCOPE_SINGLETON;
 import static org.ding.DingScope.SCOPE_THREAD;
+import static org.ding.DingScope.SCOPE_UNIT;
 
 public enum DingManager {
     dingManager;
 
     private final Logger logger = Logger.getLogger(getClass().getName());
 
-    // might be concurrently accessed but should be optimized for get()
-    private List<Object> singletonBeanList = new CopyOnWriteArrayList<>();
+    // must always be protected by the lock
+    private Map<DingName, DingMetadata<?>> metadataMap = new HashMap<>();
+
+    // names of the beans by all supertypes and interfaces of their bean class and by their namespace, is changed with
+    // the lock held and read without lock; a type is removed together with its last bean
+    private Map<Class<?>, Set<DingName>> typeIndex = new ConcurrentHashMap<>();
+    private Map<String, Set<DingName>> namespaceIndex = new ConcurrentHashMap<>();
+
+    // copy of the metadataMap for lookups without lock, is written while holding the lock. A single bean is put into
+    // it while a batch is published by replacing the map as a whole so that readers never see a partial batch.
+    private volatile Map<DingName, DingMetadata<?>> publishedMetadataMap = new ConcurrentHashMap<>();
+
+    // names of the beans that depend on a bean through a DingDependency, must always be protected by the lock
+    private Map<DingName, Set<DingName>> dependentsMap = new HashMap<>();
+
+    // is accessed by the current thread only and need no protection
+    private ThreadLocal<DingThreadBeans> threadBeans = ThreadLocal.withInitial(() -> registerThreadBeans(0));
+
+    // thread beans of all threads so that they can be released when their thread has terminated
+    private Map<Thread, DingThreadBeans> threadBeansMap = new ConcurrentHashMap<>();
+
+    // is incremented whenever a thread bean is reset so that every thread checks its beans once, is written with the
+    // lock held
+    private volatile int threadBeansEpoch;
+
+    // number of thread bean slots that have been handed out, must always be protected by the lock
+    private int threadSlotCount;
+
+    // number of unit bean slots that have been handed out, must always be protected by the lock
+    private int unitSlotCount;
+
+    // indexes of deleted thread and unit bean slots that are handed out again, must always be protected by the lock
+    private final Deque<Integer> freeThreadIndexes = new ArrayDeque<>();
+    private final Deque<Integer> freeUnitIndexes = new ArrayDeque<>();
+
+    // child containers that have added beans and might hold copies of the beans of their parents, must always be
+    // protected by the lock
+    private final Set<DingContainer> forkedContainers = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // the forked containers by the names of their beans and of the dependencies of their beans so that a change
+    // touches the affected children only, must always be protected by the lock
+    private final Map<DingName, Set<DingContainer>> containerIndex = new HashMap<>();
+
+    // is incremented whenever the beans of a child container change so that the suppliers of the children resolve
+    // their bean again
+    private volatile int containerVersion;
+
+    // indexes taken by child containers that are recycled after their container has been collected, must always be
+    // protected by the lock
+    private final Set<DingIndexes> containerIndexes = new HashSet<>();
+    private final ReferenceQueue<DingContainer> collectedContainers = new ReferenceQueue<>();
+
+    // slots of all cached beans, must always be protected by the lock
+    private Set<DingSlot> cachedSlots = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // maximum number of cached beans that are kept at the same time
+    private volatile int maximumCachedBeans = Integer.MAX_VALUE;
+
+    // Slots of the cached beans in the order of the CLOCK eviction while the number of cached beans is limited. A
+    // slot is queued at most once and might have lost its bean in the meantime. Must always be protected by the lock.
+    private final Deque<DingSlot> cachedQueue = new ArrayDeque<>();
+
+    // number of queued slots that hold a bean, must always be protected by the lock
+    private int cachedResidents;
+
+    // modules that have not been loaded yet by their namespace
+    private Map<String, DingModule> modules = new ConcurrentHashMap<>();
+
+    // how long failures of singletons are kept before their creation is attempted again
+    private volatile DingFailurePolicy failurePolicy = DingFailurePolicy.failurePolicy();
+
+    // names of the beans that are currently created by this thread, the innermost creation is the first element
+    private ThreadLocal<Deque<DingName>> creationStack = ThreadLocal.withInitial(() -> new ArrayDeque<>());
+
+    // creation locks that threads are currently waiting for, used to detect creation cycles between threads
+    private Map<Thread, DingCreationLock> waitingCreations = new ConcurrentHashMap<>();
+
+    private static final long CREATION_WAIT_MILLIS = 50;
+
+    // protects the registration of beans only, suppliers are never called and creation locks are never acquired
+    // while holding it
+    private Lock lock = new ReentrantLock();
+
+    // is null while metrics are disabled
+    private volatile DingMetrics metrics;
+
+    // is null until freeze() is called
+    private volatile DingSnapshot snapshot;
+
+    // is null while no profile is recorded
+    private volatile DingProfile profile;
+
+    private static final String METRICS_NAME = "org.ding:type=DingMetrics";
+
+    /**
+     * Starts to record metrics per bean and publishes them as MBean org.ding:type=DingMetrics. Existing metrics are
+     * discarded.
+     *
+     * @param getSampleRate every n-th get() of a bean supplier is counted, 0 disables counting; it applies to the
+     *                      suppliers returned by getBean() after metrics have been enabled
+     */
+    public void enableMetrics(int getSampleRate) {
+        if (getSampleRate < 0) {
+            throw new RuntimeException(format("sample rate must not be negative but is %d", getSampleRate));
+        }
+        final DingMetrics newMetrics = new DingMetrics(getSampleRate);
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(METRICS_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(newMetrics, objectName);
+        } catch (JMException e) {
+            throw new RuntimeException(format("cannot register MBean %s", METRICS_NAME), e);
+        }
+        metrics = newMetrics;
+        logger.info(() -> format("enabled metrics with get sample rate %d", getSampleRate));
+    }
+
+    /**
+     * stops recording metrics and unregisters the MBean
+     */
+    public void disableMetrics() {
+        metrics = null;
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(METRICS_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new RuntimeException(format("cannot unregister MBean %s", METRICS_NAME), e);
+        }
+        logger.info(() -> "disabled metrics");
+    }
+
+    /**
+     * @return the current metrics or null if metrics are disabled
+     */
+    public DingMetricsMXBean getMetrics() {
+        return metrics;
+    }
+
+    // records the time spent waiting for the lock if metrics are enabled
+    private void acquireLock() {
+        final DingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            lock.lock();
+        } else if (!lock.tryLock()) {
+            final long start = System.nanoTime();
+            lock.lock();
+            metrics.recordLockWait(System.nanoTime() - start);
+        }
+    }
+
+    private void recordReplacement(DingName dingName) {
+        final DingMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.forBean(dingName).recordReplacement();
+        }
+    }
+
+    /**
+     * deletes all beans which is done during testing
+     */
+    public void deleteAllBeans() {
+        acquireLock();
+        try {
+            metadataMap.values().forEach(metadata -> deleteSlot(metadata.getSlot()));
+            // the children lose their own beans and their copies together with the beans of the DingManager
+            forkedContainers.forEach(container -> {
+                container.getMetadataMap().values().forEach(metadata -> deleteSlot(metadata.getSlot()));
+                container.setMetadataMap(emptyMap(), emptySet());
+                final DingIndexes indexes = container.getIndexes();
+                if (indexes != null) {
+                    containerIndexes.remove(indexes);
+                    indexes.clear();
+                    container.setIndexes(null);
+                }
+            });
+            forkedContainers.clear();
+            containerIndex.clear();
+            containerVersion++;
+            recycleIndexes();
+            // the index spaces start from scratch unless children still hold indexes
+            if (containerIndexes.isEmpty()) {
+                threadSlotCount = 0;
+                unitSlotCount = 0;
+                freeThreadIndexes.clear();
+                freeUnitIndexes.clear();
+            }
+            metadataMap.clear();
+            publishMetadata();
+            typeIndex.clear();
+            namespaceIndex.clear();
+            modules.clear();
+            dependentsMap.clear();
+            cachedSlots.clear();
+            clearCachedQueue();
+            snapshot = null;
+            logger.info(() -> "delete all beans");
+        } finally {
+            lock.unlock();
+        }
+        releaseDeadThreadBeans();
+    }
+
+    /**
+     * Releases all thread beans of the current thread and closes the AutoCloseable ones. The thread gets new beans when
+     * it fetches them again. Pooled threads might call it after every task.
+     */
+    public void releaseThreadBeans() {
+        final DingThreadBeans threadBeans = threadBeansMap.remove(Thread.currentThread());
+        this.threadBeans.remove();
+        if (threadBeans != null) {
+            threadBeans.releaseAll();
+        }
+    }
+
+    /**
+     * Releases the thread beans of all threads that have terminated and closes the AutoCloseable ones. That is done
+     * automatically whenever a new thread fetches its first thread bean and by deleteAllBeans().
+     */
+    public void releaseDeadThreadBeans() {
+        threadBeansMap.forEach((thread, threadBeans) -> {
+            // a terminated thread has published all its changes
+            if (!thread.isAlive() && threadBeansMap.remove(thread, threadBeans)) {
+                threadBeans.releaseAll();
+                logger.finer(() -> format("released thread beans of terminated thread %s", thread.getName()));
+            }
+        });
+    }
+
+    private DingThreadBeans registerThreadBeans(int capacity) {
+        releaseDeadThreadBeans();
+        final DingThreadBeans threadBeans = new DingThreadBeans(threadBeansEpoch, capacity);
+        threadBeansMap.put(Thread.currentThread(), threadBeans);
+        return threadBeans;
+    }
+
+    /**
+     * Creates a ThreadFactory for executors whose workers allocate the slots of all thread beans when they start and
+     * create the given thread beans before their first task. The beans of a worker are released and the
+     * AutoCloseable ones are closed when it terminates. A thread bean that cannot be created is logged and created
+     * again on its first use.
+     *
+     * @param delegate    creates the actual threads, e.g. Executors.defaultThreadFactory()
+     * @param threadBeans names of thread beans that every worker creates up front
+     */
+    public ThreadFactory threadFactory(ThreadFactory delegate, DingName... threadBeans) {
+        return new DingThreadFactory(delegate, checkThreadBeans(threadBeans));
+    }
+
+    /**
+     * same as @threadFactory but for the workers of a ForkJoinPool
+     */
+    public ForkJoinPool.ForkJoinWorkerThreadFactory forkJoinWorkerThreadFactory(DingName... threadBeans) {
+        return new DingThreadFactory(null, checkThreadBeans(threadBeans));
+    }
+
+    private List<DingName> checkThreadBeans(DingName... threadBeans) {
+        for (DingName dingName : threadBeans) {
+            final DingMetadata<?> metadata = getMetadata(dingName);
+            if (!metadata.getScope().equals(SCOPE_THREAD)) {
+                throw new RuntimeException(format("bean %s is not a thread bean", dingName));
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(threadBeans)));
+    }
+
+    // called by the workers of a DingThreadFactory before their first task
+    void startWorker(List<DingName> prewarmed) {
+        final int capacity;
+        acquireLock();
+        try {
+            capacity = threadSlotCount;
+        } finally {
+            lock.unlock();
+        }
+        threadBeans.set(registerThreadBeans(capacity));
+        prewarmed.forEach(dingName -> {
+            final DingMetadata<?> metadata = publishedMetadataMap.get(dingName);
+            try {
+                if (metadata == null || !metadata.getScope().equals(SCOPE_THREAD)) {
+                    throw new RuntimeException(format("bean %s is no longer a thread bean", dingName));
+                }
+                getThreadBean(metadata.getSlot(), dingName);
+            } catch (RuntimeException e) {
+                logger.warning(() -> format("failed to create thread bean %s for worker %s: %s", dingName,
+                        Thread.currentThread().getName(), e));
+            }
+        });
+        logger.finer(() -> format("started worker %s with %d thread beans", Thread.currentThread().getName(),
+                prewarmed.size()));
+    }
+
+    // must be called with the lock held
+    private void reset(DingSlot slot) {
+        if (slot.isQueued() && slot.getBean() != null) {
+            cachedResidents--;
+        }
+        slot.reset();
+        if (slot.getScope().equals(SCOPE_THREAD)) {
+            threadBeansEpoch++;
+        }
+    }
+
+    /**
+     * same as @initializeSingletons but uses the common ForkJoinPool
+     */
+    public void initializeSingletons() {
+        initializeSingletons(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates all singleton beans concurrently. A bean is created only after all beans have been created that it
+     * depends on through a DingDependency so that these can be injected immediately. Cyclic dependencies are
+     * injected lazily as usual.
+     *
+     * @param executor executes the creation of the beans
+     * @throws DingInitializationException after all other beans have been created if some beans have failed
+     */
+    public void initializeSingletons(Executor executor) {
+        final Map<DingName, DingMetadata<?>> singletons = new HashMap<>();
+        acquireLock();
+        try {
+            metadataMap.values().stream()
+                    .filter(metadata -> metadata.getScope().equals(SCOPE_SINGLETON))
+                    .forEach(metadata -> singletons.put(metadata.getName(), metadata));
+        } finally {
+            lock.unlock();
+        }
+
+        final Map<DingName, CompletableFuture<Void>> futures = new HashMap<>();
+        final Map<DingName, Throwable> failures = new ConcurrentHashMap<>();
+        // missing and thread beans are reported by the creation itself
+        final Map<DingName, List<DingName>> edges = orderEdges(singletons.keySet(), dingName ->
+                singletons.get(dingName).getDependencies().stream()
+                        .map(DingDependency::getName)
+                        .filter(singletons::containsKey)
+                        .distinct()
+                        .collect(toList()));
+        edges.forEach((dingName, dependencyNames) -> futures.put(dingName,
+                scheduleInitialization(singletons.get(dingName), dependencyNames, futures, failures, executor)));
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()])).join();
+
+        if (!failures.isEmpty()) {
+            throw new DingInitializationException(failures);
+        }
+        logger.fine(() -> format("initialized %d singleton beans", singletons.size()));
+    }
+
+    // Orders the nodes so that every node follows the nodes that its edges point to and returns the edges of every
+    // node in that order. Back edges of cycles are dropped. The graph is walked iteratively so that long chains don't
+    // overflow the stack.
+    private static Map<DingName, List<DingName>> orderEdges(Set<DingName> nodes,
+                                                            Function<DingName, List<DingName>> edges) {
+        final Map<DingName, List<DingName>> ordered = new LinkedHashMap<>();
+        final Set<DingName> visiting = new HashSet<>();
+        final Deque<DingName> path = new ArrayDeque<>();
+        final Deque<Iterator<DingName>> iterators = new ArrayDeque<>();
+        for (DingName node : nodes) {
+            if (ordered.containsKey(node)) {
+                continue;
+            }
+            visiting.add(node);
+            path.push(node);
+            iterators.push(edges.apply(node).iterator());
+            while (!path.isEmpty()) {
+                final Iterator<DingName> iterator = iterators.peek();
+                if (iterator.hasNext()) {
+                    final DingName next = iterator.next();
+                    if (!ordered.containsKey(next) && visiting.add(next)) {
+                        path.push(next);
+                        iterators.push(edges.apply(next).iterator());
+                    }
+                    continue;
+                }
+                final DingName done = path.pop();
+                iterators.pop();
+                visiting.remove(done);
+                ordered.put(done, edges.apply(done).stream().filter(ordered::containsKey).collect(toList()));
+            }
+        }
+        return ordered;
+    }
+
+    // the futures of the dependencies have been scheduled before
+    private CompletableFuture<Void> scheduleInitialization(DingMetadata<?> metadata, List<DingName> dependencyNames,
+                                                           Map<DingName, CompletableFuture<Void>> futures,
+                                                           Map<DingName, Throwable> failures, Executor executor) {
+        final DingName dingName = metadata.getName();
+        final CompletableFuture<?>[] dependencyFutures = dependencyNames.stream()
+                .map(futures::get)
+                .toArray(CompletableFuture[]::new);
+
+        final CompletableFuture<Void> future = CompletableFuture.allOf(dependencyFutures)
+                .thenRunAsync(() -> {
+                    final List<DingName> failedDependencies = dependencyNames.stream()
+                            .filter(failures::containsKey)
+                            .collect(toList());
+                    if (!failedDependencies.isEmpty()) {
+                        final String message = format("bean %s not created because of failed dependencies %s",
+                                dingName, failedDependencies);
+                        failures.put(dingName, new RuntimeException(message));
+                        return;
+                    }
+                    getSingletonBean(metadata.getSlot(), dingName);
+                }, executor)
+                .exceptionally(throwable -> {
+                    final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    failures.putIfAbsent(dingName, cause);
+                    logger.warning(() -> format("failed to initialize bean %s: %s", dingName, cause));
+                    return null;
+                });
+        return future;
+    }
+
+    /**
+     * same as @shutdown but uses the common ForkJoinPool, 10 seconds per bean and 30 seconds in total
+     */
+    public void shutdown() {
+        shutdown(ForkJoinPool.commonPool(), 10, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Closes the AutoCloseable singleton beans in reverse dependency order and removes all singleton beans from
+     * their slots. A bean is closed only after all beans that depend on it through a DingDependency have been closed
+     * so that independent subtrees are closed concurrently. A bean that is not closed within the bean timeout is
+     * abandoned and the beans it depends on are closed nevertheless. Beans that are fetched later are created again.
+     *
+     * @param executor     executes close()
+     * @param beanTimeout  maximum time for closing a single bean
+     * @param totalTimeout maximum time for closing all beans, shutdown() returns when it is over
+     * @throws DingShutdownException after all other beans have been closed if some beans have failed or have timed
+     *                               out
+     */
+    public void shutdown(Executor executor, long beanTimeout, long totalTimeout, TimeUnit unit) {
+        final Map<DingName, DingMetadata<?>> singletons = new HashMap<>();
+        acquireLock();
+        try {
+            metadataMap.values().stream()
+                    .filter(metadata -> metadata.getScope().equals(SCOPE_SINGLETON))
+                    .forEach(metadata -> singletons.put(metadata.getName(), metadata));
+        } finally {
+            lock.unlock();
+        }
+        final Map<DingName, List<DingName>> dependents = new HashMap<>();
+        singletons.values().forEach(metadata -> metadata.getDependencies().stream()
+                .map(DingDependency::getName)
+                .filter(singletons::containsKey)
+                .distinct()
+                .forEach(name -> dependents.computeIfAbsent(name, key -> new ArrayList<>()).add(metadata.getName())));
+
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ding-shutdown");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Map<DingName, CompletableFuture<Void>> futures = new HashMap<>();
+        final Map<DingName, Throwable> failures = new ConcurrentHashMap<>();
+        try {
+            orderEdges(singletons.keySet(), dingName -> dependents.getOrDefault(dingName, Collections.emptyList()))
+                    .forEach((dingName, dependentNames) -> futures.put(dingName,
+                            scheduleShutdown(singletons.get(dingName), dependentNames, futures, failures, executor,
+                                    timer, unit.toNanos(beanTimeout))));
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()]))
+                    .get(totalTimeout, unit);
+        } catch (TimeoutException e) {
+            futures.forEach((name, future) -> {
+                if (!future.isDone()) {
+                    failures.putIfAbsent(name, new TimeoutException(
+                            format("bean %s not closed within the total timeout", name)));
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while closing beans", e);
+        } catch (ExecutionException e) {
+            // cannot happen because failures complete the futures normally
+            throw new RuntimeException(e.getCause());
+        } finally {
+            timer.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new DingShutdownException(failures);
+        }
+        logger.info(() -> format("shut down %d singleton beans", singletons.size()));
+    }
+
+    // the futures of the dependents have been scheduled before
+    private CompletableFuture<Void> scheduleShutdown(DingMetadata<?> metadata, List<DingName> dependentNames,
+                                                     Map<DingName, CompletableFuture<Void>> futures,
+                                                     Map<DingName, Throwable> failures, Executor executor,
+                                                     ScheduledExecutorService timer, long beanTimeoutNanos) {
+        final DingName dingName = metadata.getName();
+        final CompletableFuture<?>[] dependentFutures = dependentNames.stream()
+                .map(futures::get)
+                .toArray(CompletableFuture[]::new);
+
+        // completes normally in any case so that the dependencies are closed even if this bean fails
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture.allOf(dependentFutures).whenComplete((ignored, throwable) -> {
+            try {
+                closeSingleton(metadata, future, failures, executor, timer, beanTimeoutNanos);
+            } catch (RuntimeException e) {
+                // e.g. the executor has been shut down, the dependencies are closed nevertheless
+                synchronized (future) {
+                    failures.putIfAbsent(dingName, e);
+                    future.complete(null);
+                }
+                logger.warning(() -> format("failed to close bean %s: %s", dingName, e));
+            }
+        });
+        return future;
+    }
+
+    // removes the bean from its slot and closes it, completes the future when it is closed or has failed
+    private void closeSingleton(DingMetadata<?> metadata, CompletableFuture<Void> future,
+                                Map<DingName, Throwable> failures, Executor executor,
+                                ScheduledExecutorService timer, long beanTimeoutNanos) {
+        final DingName dingName = metadata.getName();
+        final Object bean;
+        acquireLock();
+        try {
+            bean = metadata.getSlot().getBean();
+            reset(metadata.getSlot());
+        } finally {
+            lock.unlock();
+        }
+        if (!(bean instanceof AutoCloseable)) {
+            future.complete(null);
+            return;
+        }
+        // the failure is recorded before the future completes so that it is seen by shutdown()
+        try {
+            timer.schedule(() -> {
+                synchronized (future) {
+                    if (!future.isDone()) {
+                        failures.putIfAbsent(dingName, new TimeoutException(
+                                format("bean %s not closed within the bean timeout", dingName)));
+                        future.complete(null);
+                        logger.warning(() -> format("abandoned closing bean %s after the bean timeout", dingName));
+                    }
+                }
+            }, beanTimeoutNanos, NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutdown() has returned after the total timeout and has reported the bean as not closed
+            logger.fine(() -> format("closing bean %s after the total timeout", dingName));
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                ((AutoCloseable) bean).close();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor).whenComplete((closed, closeFailure) -> {
+            synchronized (future) {
+                if (closeFailure != null && !future.isDone()) {
+                    final Throwable cause = DingAsyncSupplier.unwrap(closeFailure);
+                    failures.putIfAbsent(dingName, cause);
+                    logger.warning(() -> format("failed to close bean %s: %s", dingName, cause));
+                }
+                future.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Records the singleton creations of the next duration and writes them to file when the duration is over. The
+     * profile is read by replayProfile() on the next start. A running recording is discarded.
+     *
+     * @return completes when the profile has been written
+     */
+    public CompletableFuture<Void> recordProfile(Path file, long duration, TimeUnit unit) {
+        final DingProfile recording = new DingProfile(unit.toNanos(duration));
+        profile = recording;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        final Thread writer = new Thread(() -> {
+            try {
+                long remaining;
+                while ((remaining = recording.getRemainingNanos()) > 0) {
+                    NANOSECONDS.sleep(remaining);
+                }
+                if (profile == recording) {
+                    profile = null;
+                }
+                recording.write(file);
+                logger.info(() -> format("wrote profile %s with %d creations", file, recording.getEntries().size()));
+                written.complete(null);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                logger.warning(() -> format("failed to write profile %s: %s", file, e));
+                written.completeExceptionally(e);
+            }
+        }, "ding-profile");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info(() -> format("recording profile %s for %d %s", file, duration, unit));
+        return written;
+    }
+
+    /**
+     * Creates the singleton beans of a profile that has been written by recordProfile() in the background. The beans
+     * with the longest critical path, their own creation time plus the one of their dependencies, are submitted
+     * first. A missing or unreadable profile is ignored so that the first start works as usual and failures are
+     * logged only because the beans are created again when they are needed.
+     *
+     * @param executor executes the creation of the beans
+     * @return completes when all beans of the profile have been created or have failed
+     */
+    public CompletableFuture<Void> replayProfile(Path file, Executor executor) {
+        if (!Files.exists(file)) {
+            logger.fine(() -> format("no profile %s to replay", file));
+            return CompletableFuture.completedFuture(null);
+        }
+        final List<DingProfile.Entry> entries;
+        try {
+            entries = DingProfile.read(file);
+        } catch (IOException e) {
+            logger.warning(() -> format("cannot read profile %s: %s", file, e));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final Map<DingName, DingMetadata<?>> singletons = new HashMap<>();
+        acquireLock();
+        try {
+            entries.stream()
+                    .map(entry -> metadataMap.get(entry.getName()))
+                    .filter(metadata -> metadata != null && metadata.getScope().equals(SCOPE_SINGLETON))
+                    .forEach(metadata -> singletons.put(metadata.getName(), metadata));
+        } finally {
+            lock.unlock();
+        }
+
+        final List<DingName> order = DingProfile.criticalPathOrder(entries, name -> {
+            final DingMetadata<?> metadata = singletons.get(name);
+            return metadata == null ? null : metadata.getDependencies().stream()
+                    .map(DingDependency::getName)
+                    .collect(toList());
+        });
+        final CompletableFuture<?>[] futures = order.stream()
+                .map(singletons::get)
+                .map(metadata -> CompletableFuture
+                        .runAsync(() -> getSingletonBean(metadata.getSlot(), metadata.getName()), executor)
+                        .exceptionally(throwable -> {
+                            logger.warning(() -> format("failed to replay bean %s: %s", metadata.getName(),
+                                    throwable));
+                            return null;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        logger.info(() -> format("replaying %d beans of profile %s", futures.length, file));
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * adds or replaces a bean
+     *
+     * @param dingName  unique name of the bean including namespace
+     * @param supplier  supplier that creates a new object of type BeanType
+     * @param beanClass type or some base type of the bean object which is used for error checking
+     */
+    public <BeanType> void addSingletonBean(DingName dingName, Supplier<BeanType> supplier,
+                                            Class<? extends BeanType> beanClass,
+                                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        register(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_SINGLETON, null, dependencies));
+    }
+
+    private void register(DingRegistration<?> registration) {
+        acquireLock();
+        try {
+            checkNotFrozen(registration.getName());
+            final DingMetadata<?> oldMetadata = metadataMap.get(registration.getName());
+            if (oldMetadata != null) {
+                checkReplacement(registration, oldMetadata.getBeanClass(), oldMetadata.getScope());
+            }
+            final Set<DingName> changed = new HashSet<>(singleton(registration.getName()));
+            if (apply(registration) && isResettable(registration.getScope())) {
+                changed.addAll(resetDependentSingletons(singleton(registration.getName())));
+            }
+            publishMetadata(registration.getName());
+            refreshContainers(null, changed, singleton(registration.getName()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers all beans of a batch with a single lock acquisition so that readers never see a partially registered
+     * batch. The batch is validated completely before the first bean is registered.
+     */
+    void register(List<DingRegistration<?>> registrations) {
+        // dependencies in modules are loaded before the batch is validated
+        if (!modules.isEmpty()) {
+            for (DingRegistration<?> registration : registrations) {
+                for (DingDependency<?, ?> dependency : registration.getDependencies()) {
+                    lookupMetadata(dependency.getName());
+                }
+            }
+        }
+        acquireLock();
+        try {
+            final Map<DingName, DingRegistration<?>> stagedMap = new HashMap<>();
+            for (DingRegistration<?> registration : registrations) {
+                final DingName dingName = registration.getName();
+                checkNotFrozen(dingName);
+                final DingRegistration<?> staged = stagedMap.get(dingName);
+                final DingMetadata<?> oldMetadata = metadataMap.get(dingName);
+                if (staged != null) {
+                    checkReplacement(registration, staged.getBeanClass(), staged.getScope());
+                } else if (oldMetadata != null) {
+                    checkReplacement(registration, oldMetadata.getBeanClass(), oldMetadata.getScope());
+                }
+                stagedMap.put(dingName, registration);
+            }
+            stagedMap.values().forEach(registration -> {
+                for (DingDependency<?, ?> dependency : registration.getDependencies()) {
+                    final DingRegistration<?> staged = stagedMap.get(dependency.getName());
+                    final DingMetadata<?> depMetadata = metadataMap.get(dependency.getName());
+                    if (staged == null && depMetadata == null) {
+                        final String message = format("bean %s depends on missing bean %s", registration.getName(),
+                                dependency.getName());
+                        throw new RuntimeException(message);
+                    }
+                    checkDependencyScope(registration.getName(), registration.getScope(), dependency.getName(),
+                            staged != null ? staged.getScope() : depMetadata.getScope());
+                    checkDependencyClass(registration.getName(), dependency,
+                            staged != null ? staged.getBeanClass() : depMetadata.getBeanClass());
+                    if (!dependency.isHandle()) {
+                        checkSoftDependency(registration.getName(), registration.getCacheConfig(),
+                                dependency.getName(),
+                                staged != null ? staged.getCacheConfig() : depMetadata.getCacheConfig());
+                    }
+                }
+            });
+
+            final Set<DingName> replacedSingletons = new HashSet<>();
+            registrations.forEach(registration -> {
+                if (apply(registration) && isResettable(registration.getScope())) {
+                    replacedSingletons.add(registration.getName());
+                }
+            });
+            final Set<DingName> replaced = registrations.stream().map(DingRegistration::getName).collect(toSet());
+            final Set<DingName> changed = new HashSet<>(replaced);
+            changed.addAll(resetDependentSingletons(replacedSingletons));
+            publishMetadata();
+            refreshContainers(null, changed, replaced);
+            logger.fine(() -> format("registered batch of %d beans", registrations.size()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * starts a batch of registrations that are applied atomically by DingBatch.commit()
+     */
+    public DingBatch batch() {
+        return new DingBatch(this);
+    }
+
+    private static void checkReplacement(DingRegistration<?> registration, Class<?> oldBeanClass, DingScope oldScope) {
+        final DingName dingName = registration.getName();
+        if (!oldBeanClass.isAssignableFrom(registration.getBeanClass())) {
+            final String message = format("incompatible classes for bean %s, old: %s, new: %s", dingName,
+                    oldBeanClass, registration.getBeanClass());
+            throw new RuntimeException(message);
+        }
+        if (!oldScope.equals(registration.getScope())) {
+            final String message = format("cannot change scope of bean %s from %s to %s", dingName,
+                    oldScope.getDescription(), registration.getScope().getDescription());
+            throw new RuntimeException(message);
+        }
+    }
+
+    // Adds or replaces a validated bean. Dependent singletons must be reset by the caller. Must be called with the lock
+    // held and returns true if an existing bean has been replaced.
+    private <BeanType> boolean apply(DingRegistration<BeanType> registration) {
+        final DingName dingName = registration.getName();
+        final Class<? extends BeanType> beanClass = registration.getBeanClass();
+        final DingScope scope = registration.getScope();
+        final DingMetadata<?> oldMetadata = metadataMap.get(dingName);
+        final DingSlot slot;
+        if (oldMetadata != null) {
+            slot = oldMetadata.getSlot();
+            recordReplacement(dingName);
+            final Class<?> oldBeanClass = oldMetadata.getBeanClass();
+            logger.info(() -> format("replace bean %s of type %s with type %s", dingName, oldBeanClass, beanClass));
+        } else {
+            if (scope.equals(SCOPE_POOLED)) {
+                // the bean of a pooled slot is its pool
+                final DingSlot pooledSlot = new DingSlot(dingName, scope);
+                pooledSlot.setBean(new DingPool<BeanType>(dingName, () -> createPooledBean(pooledSlot, dingName),
+                        registration.getPoolConfig()));
+                slot = pooledSlot;
+            } else {
+                slot = newSlot(null, dingName, scope);
+            }
+            logger.fine(() -> format("add bean %s of type %s", dingName, beanClass));
+        }
+        putMetadata(new DingMetadata<>(dingName, slot, registration.getSupplier(), beanClass, scope,
+                registration.getCacheConfig(), registration.getDependencies()));
+        // The slot is reset after the new metadata has been published so that a thread that sees the new version
+        // creates the new bean. Existing units keep their beans.
+        if (oldMetadata != null && isResettable(scope)) {
+            reset(slot);
+        }
+        if (oldMetadata != null && scope.equals(SCOPE_POOLED)) {
+            ((DingPool<?>) slot.getBean()).reset(registration.getPoolConfig());
+        }
+        return oldMetadata != null;
+    }
+
+    // Every scope has its own dense index space. The indexes of deleted slots and of collected children are handed
+    // out again. Must be called with the lock held.
+    private DingSlot newSlot(DingContainer container, DingName dingName, DingScope scope) {
+        recycleIndexes();
+        switch (scope) {
+            case SCOPE_THREAD:
+                final int threadIndex = !freeThreadIndexes.isEmpty() ? freeThreadIndexes.pop() : threadSlotCount++;
+                if (container != null) {
+                    getIndexes(container).getThreadIndexes().add(threadIndex);
+                }
+                return new DingSlot(container, dingName, scope, threadIndex);
+            case SCOPE_UNIT:
+                final int unitIndex = !freeUnitIndexes.isEmpty() ? freeUnitIndexes.pop() : unitSlotCount++;
+                if (container != null) {
+                    getIndexes(container).getUnitIndexes().add(unitIndex);
+                }
+                return new DingSlot(container, dingName, scope, unitIndex);
+            case SCOPE_CACHED:
+                final DingSlot cachedSlot = new DingSlot(container, dingName, scope, -1);
+                cachedSlots.add(cachedSlot);
+                return cachedSlot;
+            default:
+                return new DingSlot(container, dingName, scope, -1);
+        }
+    }
+
+    // must be called with the lock held
+    private DingIndexes getIndexes(DingContainer container) {
+        if (container.getIndexes() == null) {
+            final DingIndexes indexes = new DingIndexes(container, collectedContainers);
+            containerIndexes.add(indexes);
+            container.setIndexes(indexes);
+        }
+        return container.getIndexes();
+    }
+
+    // removes the bean and the metadata from a slot that is no longer used, must be called with the lock held
+    private void deleteSlot(DingSlot slot) {
+        reset(slot);
+        slot.setMetadata(null);
+        freeIndex(slot);
+    }
+
+    // the slot must have been deleted, must be called with the lock held
+    private void freeIndex(DingSlot slot) {
+        final DingIndexes indexes = slot.getContainer() != null ? slot.getContainer().getIndexes() : null;
+        if (slot.getScope().equals(SCOPE_THREAD)) {
+            if (indexes != null) {
+                indexes.getThreadIndexes().remove((Integer) slot.getIndex());
+            }
+            freeThreadIndexes.push(slot.getIndex());
+        } else if (slot.getScope().equals(SCOPE_UNIT)) {
+            if (indexes != null) {
+                indexes.getUnitIndexes().remove((Integer) slot.getIndex());
+            }
+            freeUnitIndexes.push(slot.getIndex());
+        }
+    }
+
+    // hands out the indexes of collected children again, must be called with the lock held
+    private void recycleIndexes() {
+        Reference<? extends DingContainer> reference;
+        while ((reference = collectedContainers.poll()) != null) {
+            final DingIndexes indexes = (DingIndexes) reference;
+            containerIndexes.remove(indexes);
+            indexes.getThreadIndexes().forEach(freeThreadIndexes::push);
+            indexes.getUnitIndexes().forEach(freeUnitIndexes::push);
+            logger.finer(() -> format("recycled %d thread and %d unit bean indexes of a collected container",
+                    indexes.getThreadIndexes().size(), indexes.getUnitIndexes().size()));
+        }
+    }
+
+    // singletons, cached beans and thread beans are kept in their slot or by their thread and must be reset when they
+    // or their dependencies change
+    private static boolean isResettable(DingScope scope) {
+        return scope.equals(SCOPE_SINGLETON) || scope.equals(SCOPE_CACHED) || scope.equals(SCOPE_THREAD);
+    }
+
+    /**
+     * Adds a module that registers the beans of a namespace when the first bean of the namespace is looked up, e.g.
+     * by getBean(), by a DingKey or as a dependency. Only one thread runs the loader and concurrent lookups wait for
+     * it. The beans added to the batch are committed atomically after the loader has returned. A loader that fails
+     * runs again with the next lookup. Modules must not depend on each other cyclically. freeze() loads all modules.
+     *
+     * @param namespace namespace of the beans of the module, replaces a module of the same namespace that has not
+     *                  been loaded yet
+     * @param loader    adds the beans of the namespace to the batch
+     */
+    public void addModule(String namespace, Consumer<DingBatch> loader) {
+        if (namespace == null) {
+            throw new RuntimeException("namespace of module must not be null");
+        }
+        acquireLock();
+        try {
+            if (snapshot != null) {
+                throw new RuntimeException(format("beans are frozen, cannot add module %s", namespace));
+            }
+            modules.put(namespace, new DingModule(namespace, loader));
+        } finally {
+            lock.unlock();
+        }
+        logger.fine(() -> format("add module %s", namespace));
+    }
+
+    // the published beans are read without lock, the module is loaded only if the bean does not exist yet
+    private DingMetadata<?> lookupMetadata(DingName dingName) {
+        final DingMetadata<?> metadata = publishedMetadataMap.get(dingName);
+        if (metadata != null || modules.isEmpty() || !loadModule(dingName.getNamespace())) {
+            return metadata;
+        }
+        return publishedMetadataMap.get(dingName);
+    }
+
+    // must not be called with the lock held, returns true if a module has been loaded
+    private boolean loadModule(String namespace) {
+        final DingModule module = namespace != null ? modules.get(namespace) : null;
+        if (module == null || !module.load(this)) {
+            return false;
+        }
+        // the beans are published before the module is removed so that later lookups find them
+        if (modules.remove(namespace, module)) {
+            logger.info(() -> format("loaded module %s", namespace));
+        }
+        return true;
+    }
+
+    // copies the metadataMap once after a batch or a deletion, must be called with the lock held
+    private void publishMetadata() {
+        publishedMetadataMap = new ConcurrentHashMap<>(metadataMap);
+    }
+
+    // must be called with the lock held after a single bean has been registered
+    private void publishMetadata(DingName dingName) {
+        publishedMetadataMap.put(dingName, metadataMap.get(dingName));
+    }
+
+    // must be called with the lock held
+    private void putMetadata(DingMetadata<?> metadata) {
+        final DingName dingName = metadata.getName();
+        final DingMetadata<?> oldMetadata = metadataMap.put(dingName, metadata);
+        metadata.getSlot().setMetadata(metadata);
+        if (oldMetadata != null && oldMetadata.getBeanClass() != metadata.getBeanClass()) {
+            unindexType(dingName, oldMetadata.getBeanClass(), metadata.getBeanClass());
+        }
+        indexMetadata(metadata);
+        if (oldMetadata != null) {
+            oldMetadata.getDependencies().forEach(dependency -> {
+                final Set<DingName> dependents = dependentsMap.get(dependency.getName());
+                dependents.remove(dingName);
+                if (dependents.isEmpty()) {
+                    dependentsMap.remove(dependency.getName());
+                }
+            });
+        }
+        metadata.getDependencies().forEach(dependency ->
+                dependentsMap.computeIfAbsent(dependency.getName(), name -> new HashSet<>()).add(dingName));
+    }
+
+    // returns the names of the reset beans, must be called with the lock held
+    private Set<DingName> resetDependentSingletons(Set<DingName> dependencyNames) {
+        final Set<DingName> dependents = collectDependentSingletons(dependencyNames);
+        dependents.forEach(parentName -> reset(metadataMap.get(parentName).getSlot()));
+        if (!dependents.isEmpty()) {
+            logger.fine(() -> format("reset beans %s depending on beans %s", dependents, dependencyNames));
+        }
+        resetDependentPools(dependencyNames);
+        resetDependentPools(dependents);
+        return dependents;
+    }
+
+    // Pooled beans depend on singletons only and keep their idle instances in their pool so that the pool is drained
+    // instead. Must be called with the lock held.
+    private void resetDependentPools(Set<DingName> dependencyNames) {
+        dependencyNames.forEach(dependencyName -> dependentsMap.getOrDefault(dependencyName, emptySet())
+                .forEach(parentName -> {
+                    final DingMetadata<?> parent = metadataMap.get(parentName);
+                    if (parent != null && parent.getScope().equals(SCOPE_POOLED)
+                            && injectsBean(parent, dependencyName)) {
+                        ((DingPool<?>) parent.getSlot().getBean()).reset();
+                        logger.fine(() -> format("drained pool of bean %s depending on bean %s", parentName,
+                                dependencyName));
+                    }
+                }));
+    }
+
+    // walks the reverse dependencies and visits every dependent singleton once, must be called with the lock held
+    private Set<DingName> collectDependentSingletons(Set<DingName> dependencyNames) {
+        final Set<DingName> dependents = new LinkedHashSet<>();
+        final Deque<DingName> pending = new ArrayDeque<>(dependencyNames);
+        while (!pending.isEmpty()) {
+            final DingName dependencyName = pending.poll();
+            dependentsMap.getOrDefault(dependencyName, emptySet()).forEach(parentName -> {
+                final DingMetadata<?> parent = metadataMap.get(parentName);
+                if (parent != null && isResettable(parent.getScope()) && injectsBean(parent, dependencyName)
+                        && dependents.add(parentName)) {
+                    pending.add(parentName);
+                }
+            });
+        }
+        dependents.removeAll(dependencyNames);
+        return dependents;
+    }
+
+    // parents that get a handle of the dependency only follow its replacements without being reset
+    private static boolean injectsBean(DingMetadata<?> parent, DingName dependencyName) {
+        return parent.getDependencies().stream()
+                .anyMatch(dependency -> dependency.getName().equals(dependencyName) && !dependency.isHandle());
+    }
+
+    /**
+     * returns the beans that are reset when a bean is replaced, which are all singletons, cached beans and thread
+     * beans that depend on the bean directly or transitively through a DingDependency, except for dependencies that
+     * inject a handle
+     *
+     * @param dingName unique name of the bean
+     * @return the names of the dependent singletons, cached beans and thread beans
+     */
+    public Set<DingName> getDependentSingletons(DingName dingName) {
+        acquireLock();
+        try {
+            return Collections.unmodifiableSet(collectDependentSingletons(singleton(dingName)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * same as @getDependentSingletons but without namespace
+     *
+     * @param beanName bean name without namespace
+     */
+    public Set<DingName> getDependentSingletons(String beanName) {
+        return getDependentSingletons(dingName(beanName));
+    }
+
+    // A replacement is a subtype of the replaced bean so that its names are added to further types only. Must be
+    // called with the lock held.
+    private void indexMetadata(DingMetadata<?> metadata) {
+        final DingName dingName = metadata.getName();
+        final Deque<Class<?>> pending = new ArrayDeque<>(singleton(metadata.getBeanClass()));
+        while (!pending.isEmpty()) {
+            final Class<?> type = pending.poll();
+            if (typeIndex.computeIfAbsent(type, key -> ConcurrentHashMap.newKeySet()).add(dingName)) {
+                if (type.getSuperclass() != null) {
+                    pending.add(type.getSuperclass());
+                }
+                pending.addAll(Arrays.asList(type.getInterfaces()));
+            }
+        }
+        if (dingName.getNamespace() != null) {
+            namespaceIndex.computeIfAbsent(dingName.getNamespace(), key -> ConcurrentHashMap.newKeySet())
+                    .add(dingName);
+        }
+    }
+
+    // Removes a bean from the index of the supertypes of its old bean class that are no supertypes of its new bean
+    // class. The other types keep the bean so that readers never miss it during the replacement. Must be called with
+    // the lock held.
+    private void unindexType(DingName dingName, Class<?> oldBeanClass, Class<?> newBeanClass) {
+        final Set<Class<?>> visited = new HashSet<>();
+        final Deque<Class<?>> pending = new ArrayDeque<>(singleton(oldBeanClass));
+        while (!pending.isEmpty()) {
+            final Class<?> type = pending.poll();
+            if (!visited.add(type) || type.isAssignableFrom(newBeanClass)) {
+                continue;
+            }
+            final Set<DingName> names = typeIndex.get(type);
+            if (names != null) {
+                names.remove(dingName);
+                // the class is not kept reachable by the index after its last bean has gone
+                if (names.isEmpty()) {
+                    typeIndex.remove(type, names);
+                }
+            }
+            if (type.getSuperclass() != null) {
+                pending.add(type.getSuperclass());
+            }
+            pending.addAll(Arrays.asList(type.getInterfaces()));
+        }
+    }
+
+    /**
+     * Fetches suppliers for all beans whose registered class is the type or a subtype of it. The returned map is an
+     * unmodifiable view that reads the index without lock on every access so that it follows beans that are added or
+     * replaced later. Pooled beans are not included and modules are not loaded. The query does not scan all beans.
+     *
+     * @param beanClass class or interface of the beans
+     * @return the suppliers of the beans by their names
+     */
+    public <BeanType> Map<DingName, Supplier<BeanType>> getBeansOfType(Class<BeanType> beanClass) {
+        return new AbstractMap<DingName, Supplier<BeanType>>() {
+            @Override
+            public Supplier<BeanType> get(Object key) {
+                final DingMetadata<BeanType> metadata = findOfType(beanClass, key);
+                return metadata != null ? getBeanSupplier(metadata) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return findOfType(beanClass, key) != null;
+            }
+
+            @Override
+            public Set<Entry<DingName, Supplier<BeanType>>> entrySet() {
+                return new AbstractSet<Entry<DingName, Supplier<BeanType>>>() {
+                    @Override
+                    public Iterator<Entry<DingName, Supplier<BeanType>>> iterator() {
+                        return typeIndex.getOrDefault(beanClass, emptySet()).stream()
+                                .map(dingName -> findOfType(beanClass, dingName))
+                                .filter(metadata -> metadata != null)
+                                .map(metadata -> (Entry<DingName, Supplier<BeanType>>) new SimpleImmutableEntry<>(
+                                        metadata.getName(), getBeanSupplier(metadata)))
+                                .iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return (int) typeIndex.getOrDefault(beanClass, emptySet()).stream()
+                                .filter(dingName -> findOfType(beanClass, dingName) != null)
+                                .count();
+                    }
+                };
+            }
+        };
+    }
+
+    // returns null unless the bean is indexed by the type and has been published, beans of a batch are indexed before
+    // the batch is published
+    private <BeanType> DingMetadata<BeanType> findOfType(Class<BeanType> beanClass, Object dingName) {
+        if (dingName == null || !typeIndex.getOrDefault(beanClass, emptySet()).contains(dingName)) {
+            return null;
+        }
+        final DingMetadata<BeanType> metadata = (DingMetadata<BeanType>) publishedMetadataMap.get(dingName);
+        return metadata != null && !metadata.getScope().equals(SCOPE_POOLED) ? metadata : null;
+    }
+
+    /**
+     * Returns the names of all beans of a namespace after the module of the namespace has been loaded. The returned set
+     * is an unmodifiable view that reads the index without lock on every access.
+     *
+     * @param namespace namespace of the beans
+     * @return the names of the beans
+     */
+    public Set<DingName> getBeanNames(String namespace) {
+        loadModule(namespace);
+        return new AbstractSet<DingName>() {
+            @Override
+            public boolean contains(Object dingName) {
+                return dingName != null && namespaceIndex.getOrDefault(namespace, emptySet()).contains(dingName)
+                        && publishedMetadataMap.containsKey(dingName);
+            }
+
+            @Override
+            public Iterator<DingName> iterator() {
+                return namespaceIndex.getOrDefault(namespace, emptySet()).stream()
+                        .filter(publishedMetadataMap::containsKey)
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return (int) namespaceIndex.getOrDefault(namespace, emptySet()).stream()
+                        .filter(publishedMetadataMap::containsKey)
+                        .count();
+            }
+        };
+    }
+
+    /**
+     * adds or replaces a bean with thread scope, every thread gets its own instance of the bean
+     */
+    public <BeanType> void addThreadBean(DingName dingName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        register(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_THREAD, null, dependencies));
+    }
+
+    /**
+     * adds or replaces a bean with unit scope, every unit of work opened by openUnit() gets its own instance of the
+     * bean
+     */
+    public <BeanType> void addUnitBean(DingName dingName, Supplier<BeanType> supplier,
+                                       Class<? extends BeanType> beanClass,
+                                       DingDependency<BeanType, ? extends Object>... dependencies) {
+        register(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_UNIT, null, dependencies));
+    }
+
+    /**
+     * Adds or replaces a bean that is not thread safe and too expensive to be created per thread. Instances are
+     * borrowed from the pool returned by getPool() and returned when the lease is closed.
+     *
+     * @param config maximum size of the pool, prefill and behaviour when the pool is exhausted
+     */
+    public <BeanType> void addPooledBean(DingName dingName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass, DingPoolConfig config,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        register(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_POOLED, config, dependencies));
+    }
+
+    /**
+     * fetches the pool of a pooled bean
+     *
+     * @param dingName  unique name of the bean
+     * @param beanClass type or a subtype of the registered bean
+     * @return the pool that stays valid when the bean is replaced
+     */
+    public <BeanType> DingPool<BeanType> getPool(DingName dingName, Class<? extends BeanType> beanClass) {
+        final DingMetadata<?> metadata = lookupMetadata(dingName);
+        checkBeanClass(dingName, metadata, beanClass);
+        if (!metadata.getScope().equals(SCOPE_POOLED)) {
+            throw new RuntimeException(format("bean %s is not pooled", dingName));
+        }
+        return (DingPool<BeanType>) metadata.getSlot().getBean();
+    }
+
+    /**
+     * @return a new child container that shares all beans until it adds its own beans
+     */
+    public DingContainer fork() {
+        return new DingContainer(null);
+    }
+
+    // Adds or replaces a bean of a child container. The child gets its own copies of the beans that depend on the
+    // bean in its view so that they are injected with the child's bean.
+    void register(DingContainer container, DingRegistration<?> registration) {
+        final DingName dingName = registration.getName();
+        final DingScope scope = registration.getScope();
+        if (scope.equals(SCOPE_POOLED)) {
+            throw new RuntimeException(format("pooled bean %s cannot be added to a child container", dingName));
+        }
+        acquireLock();
+        try {
+            checkNotFrozen(dingName);
+            final DingMetadata<?> oldMetadata = findMetadata(container, dingName);
+            if (oldMetadata != null) {
+                checkReplacement(registration, oldMetadata.getBeanClass(), oldMetadata.getScope());
+            }
+            final Map<DingName, DingMetadata<?>> localMap = new HashMap<>(container.getMetadataMap());
+            final Set<DingName> copies = new HashSet<>(container.getCopies());
+            final Set<DingName> replaced = new HashSet<>(singleton(dingName));
+            copies.remove(dingName);
+            final DingMetadata<?> localMetadata = localMap.get(dingName);
+            final DingSlot slot = localMetadata != null ? localMetadata.getSlot() : newSlot(container, dingName, scope);
+            final DingMetadata<?> metadata = newMetadata(registration, slot);
+            localMap.put(dingName, metadata);
+            slot.setMetadata(metadata);
+            if (localMetadata != null && isResettable(scope)) {
+                reset(slot);
+            }
+
+            final Set<DingName> visited = new HashSet<>(singleton(dingName));
+            final Deque<DingName> pending = new ArrayDeque<>(singleton(dingName));
+            while (!pending.isEmpty()) {
+                final DingName depName = pending.poll();
+                for (DingName dependent : findDependents(container, localMap, depName)) {
+                    if (!visited.add(dependent)) {
+                        continue;
+                    }
+                    final DingMetadata<?> local = localMap.get(dependent);
+                    if (local != null) {
+                        if (isResettable(local.getScope())) {
+                            reset(local.getSlot());
+                        }
+                    } else {
+                        final DingMetadata<?> inherited = findMetadata(container, dependent);
+                        if (inherited.getScope().equals(SCOPE_POOLED)) {
+                            continue;
+                        }
+                        putCopy(container, localMap, copies, inherited);
+                        replaced.add(dependent);
+                    }
+                    pending.add(dependent);
+                }
+            }
+            setContainerMap(container, localMap, copies);
+            refreshContainers(container, visited, replaced);
+            logger.fine(() -> format("add bean %s of type %s to child container", dingName,
+                    registration.getBeanClass()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <BeanType> DingMetadata<BeanType> newMetadata(DingRegistration<BeanType> registration,
+                                                                 DingSlot slot) {
+        return new DingMetadata<>(registration.getName(), slot, registration.getSupplier(),
+                registration.getBeanClass(), registration.getScope(), registration.getCacheConfig(),
+                registration.getDependencies());
+    }
+
+    private static <BeanType> DingMetadata<BeanType> copyMetadata(DingMetadata<BeanType> metadata, DingSlot slot) {
+        return new DingMetadata<>(metadata.getName(), slot, metadata.getSupplier(), metadata.getBeanClass(),
+                metadata.getScope(), metadata.getCacheConfig(),
+                metadata.getDependencies().toArray(new DingDependency[0]));
+    }
+
+    // copies an inherited bean into a child container, must be called with the lock held
+    private void putCopy(DingContainer container, Map<DingName, DingMetadata<?>> localMap, Set<DingName> copies,
+                         DingMetadata<?> inherited) {
+        final DingName dingName = inherited.getName();
+        final DingMetadata<?> oldCopy = localMap.get(dingName);
+        final DingSlot slot = oldCopy != null && oldCopy.getScope().equals(inherited.getScope()) ? oldCopy.getSlot()
+                : newSlot(container, dingName, inherited.getScope());
+        final DingMetadata<?> copy = copyMetadata(inherited, slot);
+        slot.setMetadata(copy);
+        localMap.put(dingName, copy);
+        copies.add(dingName);
+        if (oldCopy != null && oldCopy.getSlot() != slot) {
+            deleteSlot(oldCopy.getSlot());
+        } else if (oldCopy != null && isResettable(slot.getScope())) {
+            reset(slot);
+        }
+        logger.finer(() -> format("copied dependent bean %s into child container", dingName));
+    }
+
+    // publishes the beans of a child container and indexes it by their names, must be called with the lock held
+    private void setContainerMap(DingContainer container, Map<DingName, DingMetadata<?>> localMap,
+                                 Set<DingName> copies) {
+        final Set<DingName> oldNames = container.getIndexedNames();
+        container.setMetadataMap(localMap, copies);
+        final Set<DingName> newNames = container.getIndexedNames();
+        oldNames.stream().filter(name -> !newNames.contains(name)).forEach(name -> {
+            final Set<DingContainer> containers = containerIndex.get(name);
+            containers.remove(container);
+            if (containers.isEmpty()) {
+                containerIndex.remove(name);
+            }
+        });
+        newNames.stream().filter(name -> !oldNames.contains(name)).forEach(name -> containerIndex
+                .computeIfAbsent(name, key -> Collections.newSetFromMap(new WeakHashMap<>())).add(container));
+        if (localMap.isEmpty()) {
+            forkedContainers.remove(container);
+        } else {
+            forkedContainers.add(container);
+        }
+        containerVersion++;
+    }
+
+    // Brings the descendants of a container, or of the DingManager if the container is null, up to date after the
+    // beans named by changed have been replaced or reset in its view. The definitions of the beans named by replaced
+    // have changed. Only the children that are affected according to the containerIndex are refreshed and a child is
+    // refreshed before its own children. Must be called with the lock held.
+    private void refreshContainers(DingContainer origin, Set<DingName> changed, Set<DingName> replaced) {
+        if (containerIndex.isEmpty()) {
+            return;
+        }
+        final Map<DingContainer, Set<DingName>> changedMap = new HashMap<>();
+        final Map<DingContainer, Set<DingName>> replacedMap = new HashMap<>();
+        final Queue<DingContainer> queue = new PriorityQueue<>(Comparator.comparingInt(DingManager::depth));
+        final Set<DingContainer> queued = new HashSet<>();
+        queueAffectedContainers(origin, changed, replaced, queue, queued);
+        while (!queue.isEmpty()) {
+            final DingContainer container = queue.poll();
+            // the children of a child that has not been refreshed see the same changes as the child
+            DingContainer ancestor = container.getParent();
+            while (ancestor != origin && !changedMap.containsKey(ancestor)) {
+                ancestor = ancestor.getParent();
+            }
+            final Set<DingName> childChanged = new HashSet<>();
+            final Set<DingName> childReplaced = new HashSet<>();
+            refreshContainer(container, ancestor == origin ? changed : changedMap.get(ancestor),
+                    ancestor == origin ? replaced : replacedMap.get(ancestor), childChanged, childReplaced);
+            changedMap.put(container, childChanged);
+            replacedMap.put(container, childReplaced);
+            queueAffectedContainers(container, childChanged, childReplaced, queue, queued);
+        }
+    }
+
+    // Queues the descendants of a container that hold beans of the changed or replaced names or that depend on them.
+    // A descendant that holds a bean that a replaced bean depends on might need a copy of the replaced bean.
+    private void queueAffectedContainers(DingContainer origin, Set<DingName> changed, Set<DingName> replaced,
+                                         Queue<DingContainer> queue, Set<DingContainer> queued) {
+        final Set<DingName> names = new HashSet<>(changed);
+        replaced.forEach(dingName -> {
+            names.add(dingName);
+            final DingMetadata<?> metadata = findMetadata(origin, dingName);
+            if (metadata != null) {
+                metadata.getDependencies().forEach(dependency -> names.add(dependency.getName()));
+            }
+        });
+        names.forEach(dingName -> containerIndex.getOrDefault(dingName, emptySet()).forEach(container -> {
+            if (isDescendant(container, origin) && queued.add(container)) {
+                queue.add(container);
+            }
+        }));
+    }
+
+    private static boolean isDescendant(DingContainer container, DingContainer origin) {
+        for (DingContainer parent = container.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent == origin) {
+                return true;
+            }
+        }
+        return origin == null;
+    }
+
+    private static int depth(DingContainer container) {
+        int depth = 0;
+        for (DingContainer parent = container.getParent(); parent != null; parent = parent.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    // Replaces the copies of replaced beans, copies inherited beans that now depend on beans of the container and
+    // resets the beans that depend on changed beans. Collects the names that have changed in the view of the container
+    // for its own children. Must be called with the lock held.
+    private void refreshContainer(DingContainer container, Set<DingName> changed, Set<DingName> replaced,
+                                  Set<DingName> childChanged, Set<DingName> childReplaced) {
+        final Map<DingName, DingMetadata<?>> localMap = new HashMap<>(container.getMetadataMap());
+        final Set<DingName> copies = new HashSet<>(container.getCopies());
+        final Set<DingName> visited = new HashSet<>();
+        final Deque<DingName> pending = new ArrayDeque<>();
+        boolean modified = false;
+        for (DingName dingName : replaced) {
+            if (localMap.containsKey(dingName) && !copies.contains(dingName)) {
+                continue;
+            }
+            childReplaced.add(dingName);
+            final DingMetadata<?> inherited = findMetadata(container.getParent(), dingName);
+            if (inherited == null || inherited.getScope().equals(SCOPE_POOLED)) {
+                // the bean has been deleted or cannot be copied anymore
+                if (copies.remove(dingName)) {
+                    deleteSlot(localMap.remove(dingName).getSlot());
+                    modified = true;
+                }
+                continue;
+            }
+            if (copies.contains(dingName) || inherited.getDependencies().stream()
+                    .anyMatch(dependency -> localMap.containsKey(dependency.getName()))) {
+                putCopy(container, localMap, copies, inherited);
+                modified = true;
+                visited.add(dingName);
+                pending.add(dingName);
+            }
+        }
+        for (DingName dingName : changed) {
+            if (!localMap.containsKey(dingName)) {
+                childChanged.add(dingName);
+                pending.add(dingName);
+            }
+        }
+        while (!pending.isEmpty()) {
+            final DingName depName = pending.poll();
+            for (DingName dependent : findDependents(container, localMap, depName)) {
+                final DingMetadata<?> local = localMap.get(dependent);
+                if (local != null) {
+                    if (!isResettable(local.getScope()) || !injectsBean(local, depName) || !visited.add(dependent)) {
+                        continue;
+                    }
+                    reset(local.getSlot());
+                } else {
+                    // inherited beans that depend on inherited beans have been refreshed by the parents
+                    final DingMetadata<?> inherited = findMetadata(container.getParent(), dependent);
+                    if (!localMap.containsKey(depName) || inherited.getScope().equals(SCOPE_POOLED)
+                            || !visited.add(dependent)) {
+                        continue;
+                    }
+                    putCopy(container, localMap, copies, inherited);
+                    modified = true;
+                    childReplaced.add(dependent);
+                }
+                pending.add(dependent);
+            }
+        }
+        childChanged.addAll(visited);
+        if (modified) {
+            setContainerMap(container, localMap, copies);
+        }
+        if (!visited.isEmpty()) {
+            logger.fine(() -> format("refreshed beans %s of child container", visited));
+        }
+    }
+
+    // Returns the names of the beans in the view of the container that depend on a bean. The view of the container
+    // is made of localMap, the beans of the parents and the beans of the DingManager. Must be called with the lock
+    // held.
+    private Set<DingName> findDependents(DingContainer container, Map<DingName, DingMetadata<?>> localMap,
+                                         DingName dingName) {
+        // copies that have been added to localMap are indexed by the containers or the DingManager they come from
+        final Set<DingName> candidates = new HashSet<>(dependentsMap.getOrDefault(dingName, emptySet()));
+        for (DingContainer current = container; current != null; current = current.getParent()) {
+            candidates.addAll(current.getDependents(dingName));
+        }
+        final Set<DingName> dependents = new HashSet<>();
+        candidates.forEach(candidate -> {
+            final DingMetadata<?> metadata = localMap.containsKey(candidate) ? localMap.get(candidate)
+                    : findMetadata(container.getParent(), candidate);
+            if (metadata != null && metadata.getDependencies().stream()
+                    .anyMatch(dependency -> dependency.getName().equals(dingName))) {
+                dependents.add(candidate);
+            }
+        });
+        return dependents;
+    }
+
+    // returns null if the bean does not exist in the view of the container, must be called with the lock held
+    private DingMetadata<?> findMetadata(DingContainer container, DingName dingName) {
+        for (DingContainer current = container; current != null; current = current.getParent()) {
+            final DingMetadata<?> metadata = current.getMetadata(dingName);
+            if (metadata != null) {
+                return metadata;
+            }
+        }
+        return metadataMap.get(dingName);
+    }
+
+    // resolves a bean in the view of a container without lock
+    private DingMetadata<?> getMetadata(DingContainer container, DingName dingName) {
+        for (DingContainer current = container; current != null; current = current.getParent()) {
+            final DingMetadata<?> metadata = current.getMetadata(dingName);
+            if (metadata != null) {
+                return metadata;
+            }
+        }
+        return getMetadata(dingName);
+    }
+
+    // The bean is resolved in the view of the container when the supplier is created and again after the beans of a
+    // child container have changed or the bean has been deleted. The slot of a bean of the DingManager is kept when it
+    // is replaced.
+    <BeanType> Supplier<BeanType> getBean(DingContainer container, DingName dingName,
+                                          Class<? extends BeanType> beanClass) {
+        final DingResolution initial = resolve(container, dingName);
+        checkBeanClass(dingName, initial.getMetadata(), beanClass);
+        final AtomicReference<DingResolution> resolution = new AtomicReference<>(initial);
+        return () -> {
+            DingResolution current = resolution.get();
+            if (current.getVersion() != containerVersion || current.getMetadata().getSlot().getMetadata() == null) {
+                current = resolve(container, dingName);
+                if (current.getMetadata() == null) {
+                    throw new RuntimeException(format("bean %s does not exist", dingName));
+                }
+                resolution.set(current);
+            }
+            return getBean((DingMetadata<BeanType>) current.getMetadata());
+        };
+    }
+
+    // the version is read before the maps so that a concurrent change is seen by the next get()
+    private DingResolution resolve(DingContainer container, DingName dingName) {
+        final int version = containerVersion;
+        return new DingResolution(version, getMetadata(container, dingName));
+    }
+
+    // a bean in the view of a child container and the version of the child containers that it is valid for
+    private static final class DingResolution {
+        private final int version;
+        private final DingMetadata<?> metadata;
+
+        private DingResolution(int version, DingMetadata<?> metadata) {
+            this.version = version;
+            this.metadata = metadata;
+        }
+
+        private int getVersion() {
+            return version;
+        }
+
+        private DingMetadata<?> getMetadata() {
+            return metadata;
+        }
+    }
+
+    /**
+     * Opens a unit of work like a request and binds it to the current thread. Unit beans are created once per unit
+     * and are released when the unit is closed.
+     *
+     * @return the new unit that must be closed by the current thread
+     */
+    public DingUnit openUnit() {
+        return DingUnit.open();
+    }
+
+    /**
+     * Same as @addBean but without namespace.
+     *
+     * @param beanName bean name without namespace
+     */
+    public <BeanType> void addSingletonBean(String beanName, Supplier<BeanType> supplier,
+                                            Class<? extends BeanType> beanClass,
+                                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        addSingletonBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    /**
+     * Replaces a singleton bean without a gap. The new bean is created and its dependencies are injected on the
+     * executor while get() keeps returning the old bean. Then the new bean is swapped in atomically and the beans
+     * that depend on it are reset as usual. The bean is added if it does not exist yet.
+     *
+     * @param executor   creates the new bean
+     * @param retirement is called with the old bean after the swap if it has been created, may be null; it is called
+     *                   with the new bean instead if the bean has been changed by someone else in the meantime
+     * @return completes with the new bean after the swap
+     */
+    public <BeanType> CompletableFuture<BeanType> replaceSingletonBean(DingName dingName, Supplier<BeanType> supplier,
+                                                                       Class<? extends BeanType> beanClass,
+                                                                       Executor executor, Consumer<Object> retirement,
+                                                                       DingDependency<BeanType, ? extends Object>...
+                                                                               dependencies) {
+        final DingRegistration<BeanType> registration = new DingRegistration<>(dingName, supplier, beanClass,
+                SCOPE_SINGLETON, null, dependencies);
+        final DingMetadata<?> oldMetadata;
+        acquireLock();
+        try {
+            checkNotFrozen(dingName);
+            oldMetadata = metadataMap.get(dingName);
+            if (oldMetadata != null) {
+                checkReplacement(registration, oldMetadata.getBeanClass(), oldMetadata.getScope());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // the temporary slot resolves the dependencies in the view of the DingManager
+        final DingMetadata<BeanType> building = new DingMetadata<>(dingName, new DingSlot(dingName, SCOPE_SINGLETON),
+                supplier, beanClass, SCOPE_SINGLETON, dependencies);
+        logger.info(() -> format("replace bean %s with type %s in the background", dingName, beanClass));
+        return CompletableFuture.supplyAsync(() -> {
+            final BeanType newBean = createBean(building);
+            injectDependencies(building.getSlot(), building, newBean);
+            return newBean;
+        }, executor).thenApply(newBean -> swapSingletonBean(registration, oldMetadata, newBean, retirement));
+    }
+
+    public <BeanType> CompletableFuture<BeanType> replaceSingletonBean(String beanName, Supplier<BeanType> supplier,
+                                                                       Class<? extends BeanType> beanClass,
+                                                                       Executor executor, Consumer<Object> retirement,
+                                                                       DingDependency<BeanType, ? extends Object>...
+                                                                               dependencies) {
+        return replaceSingletonBean(dingName(beanName), supplier, beanClass, executor, retirement, dependencies);
+    }
+
+    private <BeanType> BeanType swapSingletonBean(DingRegistration<BeanType> registration,
+                                                  DingMetadata<?> oldMetadata, BeanType newBean,
+                                                  Consumer<Object> retirement) {
+        final DingName dingName = registration.getName();
+        final boolean changed;
+        Object oldBean = null;
+        acquireLock();
+        try {
+            changed = snapshot != null || metadataMap.get(dingName) != oldMetadata;
+            if (!changed) {
+                final DingSlot slot = oldMetadata != null ? oldMetadata.getSlot()
+                        : newSlot(null, dingName, SCOPE_SINGLETON);
+                if (oldMetadata != null) {
+                    recordReplacement(dingName);
+                }
+                putMetadata(new DingMetadata<>(dingName, slot, registration.getSupplier(),
+                        registration.getBeanClass(), SCOPE_SINGLETON, registration.getDependencies()));
+                oldBean = slot.getBean();
+                // the reset makes running creations of the old bean outdated
+                reset(slot);
+                slot.setBean(newBean);
+                final Set<DingName> changedNames = new HashSet<>(singleton(dingName));
+                changedNames.addAll(resetDependentSingletons(singleton(dingName)));
+                publishMetadata(dingName);
+                refreshContainers(null, changedNames, singleton(dingName));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changed) {
+            if (retirement != null) {
+                retirement.accept(newBean);
+            }
+            throw new RuntimeException(format("bean %s has been changed while its replacement was created",
+                    dingName));
+        }
+        logger.fine(() -> format("swapped in new bean %s", dingName));
+        if (oldBean != null && retirement != null) {
+            retirement.accept(oldBean);
+        }
+        return newBean;
+    }
+
+    /**
+     * Adds or replaces a singleton whose supplier completes asynchronously, e.g. after some I/O. The supplier is
+     * called once per creation by the first caller and its beans are fetched with getAsync() without blocking.
+     * get() of the supplier returned by getBean() waits for the creation. Dependencies are injected as soon as the
+     * bean and the dependencies have been created and the future of getAsync() completes afterwards.
+     *
+     * @param asyncSupplier supplier that starts the creation of a new object of type BeanType
+     */
+    public <BeanType> void addAsyncSingletonBean(DingName dingName,
+                                                 Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier,
+                                                 Class<? extends BeanType> beanClass,
+                                                 DingDependency<BeanType, ? extends Object>... dependencies) {
+        register(new DingRegistration<>(dingName, new DingAsyncSupplier<>(asyncSupplier), beanClass, SCOPE_SINGLETON,
+                null, dependencies));
+    }
+
+    /**
+     * Same as @addAsyncSingletonBean but without namespace.
+     *
+     * @param beanName bean name without namespace
+     */
+    public <BeanType> void addAsyncSingletonBean(String beanName,
+                                                 Supplier<? extends CompletionStage<? extends BeanType>> asyncSupplier,
+                                                 Class<? extends BeanType> beanClass,
+                                                 DingDependency<BeanType, ? extends Object>... dependencies) {
+        addAsyncSingletonBean(dingName(beanName), asyncSupplier, beanClass, dependencies);
+    }
+
+    public <BeanType> void addThreadBean(String beanName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        addThreadBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    public <BeanType> void addUnitBean(String beanName, Supplier<BeanType> supplier,
+                                       Class<? extends BeanType> beanClass,
+                                       DingDependency<BeanType, ? extends Object>... dependencies) {
+        addUnitBean(dingName(beanName), supplier, beanClass, dependencies);
+    }
+
+    public <BeanType> void addPooledBean(String beanName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass, DingPoolConfig config,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        addPooledBean(dingName(beanName), supplier, beanClass, config, dependencies);
+    }
+
+    /**
+     * Adds or replaces a cached bean. It is created lazily like a singleton but it is discarded when it expires, when
+     * the garbage collector needs memory or when it is evicted because of limitCachedBeans(). The next get() creates
+     * it again and all concurrent callers wait for the same creation. Cached beans may depend on singletons and on
+     * other cached beans.
+     *
+     * @param config expiry, refresh and reachability of the bean
+     */
+    public <BeanType> void addCachedBean(DingName dingName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass, DingCacheConfig config,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        register(new DingRegistration<>(dingName, supplier, beanClass, SCOPE_CACHED, null, config, dependencies));
+    }
+
+    /**
+     * Same as @addCachedBean but without namespace.
+     *
+     * @param beanName bean name without namespace
+     */
+    public <BeanType> void addCachedBean(String beanName, Supplier<BeanType> supplier,
+                                         Class<? extends BeanType> beanClass, DingCacheConfig config,
+                                         DingDependency<BeanType, ? extends Object>... dependencies) {
+        addCachedBean(dingName(beanName), supplier, beanClass, config, dependencies);
+    }
+
+    /**
+     * Sets how long failures of singletons are kept. While a failure is kept get() fails immediately with a
+     * RuntimeException caused by the kept failure instead of calling the supplier again. After the backoff a single
+     * caller retries while the others wait for its result. Replacing the bean discards its failure.
+     *
+     * @param policy failurePolicy() disables keeping failures which is the default
+     */
+    public void setFailurePolicy(DingFailurePolicy policy) {
+        failurePolicy = policy;
+        logger.info(() -> format("keep failures for %d to %d ms",
+                NANOSECONDS.toMillis(policy.getInitialBackoffNanos()),
+                NANOSECONDS.toMillis(policy.getMaximumBackoffNanos())));
+    }
+
+    /**
+     * @return the kept failures of all singletons that are currently backing off or waiting for their next attempt
+     */
+    public Map<DingName, Throwable> getFailedBeans() {
+        final Map<DingName, Throwable> failures = new HashMap<>();
+        publishedMetadataMap.values().forEach(metadata -> {
+            final DingFailure failure = metadata.getSlot().getFailure();
+            if (failure != null) {
+                failures.put(metadata.getName(), failure.getCause());
+            }
+        });
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Limits the number of cached beans that are kept at the same time. A new bean evicts a bean that has not been used
+     * frequently. The beans are visited in a circle and the frequency of a bean is decremented whenever it is skipped
+     * so that beans that are no longer used become evictable.
+     *
+     * @param maximum maximum number of cached beans, Integer.MAX_VALUE disables the limit
+     */
+    public void limitCachedBeans(int maximum) {
+        if (maximum < 1) {
+            throw new RuntimeException(format("maximum of cached beans must be positive but is %d", maximum));
+        }
+        acquireLock();
+        try {
+            if (maximum == Integer.MAX_VALUE) {
+                clearCachedQueue();
+            } else if (maximumCachedBeans == Integer.MAX_VALUE) {
+                cachedSlots.stream()
+                        .filter(slot -> slot.getBean() != null)
+                        .forEach(slot -> {
+                            slot.setQueued(true);
+                            cachedQueue.add(slot);
+                            cachedResidents++;
+                        });
+            }
+            maximumCachedBeans = maximum;
+            evictCachedBeans(0);
+        } finally {
+            lock.unlock();
+        }
+        logger.info(() -> format("limited cached beans to %d", maximum));
+    }
+
+    /**
+     * same as @getPool but without namespace
+     *
+     * @param beanName bean name without namespace
+     */
+    public <BeanType> DingPool<BeanType> getPool(String beanName, Class<? extends BeanType> beanClass) {
+        return getPool(dingName(beanName), beanClass);
+    }
+
+    // The default execution path is not protected by any lock for performance reasons. This method should be really
+    // fast for the default execution path.
+    private <BeanType> BeanType getSingletonBean(DingSlot slot, DingName dingName) {
+        // This line is potentially accessed concurrently. It is a single volatile read.
+        BeanType bean = (BeanType) slot.getBean();
+
+        if (bean == null) {
+            bean = createSingletonBean(slot, dingName);
+        }
+        return bean;
+    }
+
+    // Only competing creators of the same bean are serialized. The supplier is called without holding the global
+    // lock and the new bean is discarded if the bean has been replaced in the meantime.
+    private <BeanType> BeanType createSingletonBean(DingSlot slot, DingName dingName) {
+        final DingCreationLock creationLock = slot.getCreationLock();
+        final Deque<DingName> creationStack = checkCreationCycle(dingName);
+        final DingMetadata<?> current = slot.getMetadata();
+        if (current != null && current.getSupplier() instanceof DingAsyncSupplier) {
+            return (BeanType) DingAsyncSupplier.join(createSingletonAsync(slot, dingName, true));
+        }
+        checkFailure(slot, dingName);
+        final DingProfile profile = this.profile;
+        final long start = profile != null ? System.nanoTime() : 0;
+        final long waitNanos = acquireCreationLock(creationLock);
+        creationStack.push(dingName);
+        try {
+            while (true) {
+                final BeanType bean = (BeanType) slot.getBean();
+                if (bean != null) {
+                    return bean;
+                }
+                // a competing creator might just have failed
+                checkFailure(slot, dingName);
+
+                final DingMetadata<BeanType> metadata;
+                final int version;
+                acquireLock();
+                try {
+                    metadata = getCreationMetadata(slot, dingName);
+                    version = slot.getVersion();
+                } finally {
+                    lock.unlock();
+                }
+
+                final long creationStart = profile != null ? System.nanoTime() : 0;
+                final BeanType newBean;
+                try {
+                    newBean = createBean(metadata);
+                } catch (RuntimeException | Error e) {
+                    recordFailure(slot, version, dingName, e);
+                    throw e;
+                }
+                final DingFailure recovered;
+                acquireLock();
+                try {
+                    if (slot.getVersion() != version) {
+                        logger.fine(() -> format("discard outdated bean %s", dingName));
+                        continue;
+                    }
+                    slot.setBean(newBean);
+                    recovered = slot.getFailure();
+                    slot.setFailure(null);
+                } finally {
+                    lock.unlock();
+                }
+                if (recovered != null) {
+                    logger.info(() -> format("bean %s recovered after %d failures", dingName, recovered.getCount()));
+                }
+                if (profile != null) {
+                    profile.record(dingName, start, System.nanoTime() - creationStart, waitNanos);
+                }
+                logger.finer(() -> format("created new bean %s of type %s", metadata.getName(),
+                        metadata.getBeanClass()));
+                injectDependencies(slot, metadata, newBean);
+                return newBean;
+            }
+        } finally {
+            creationStack.pop();
+            creationLock.unlock();
+        }
+    }
+
+    // fails fast with the kept failure while the bean is backing off
+    private void checkFailure(DingSlot slot, DingName dingName) {
+        final DingFailure failure = slot.getFailure();
+        if (failure == null) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (failure.isBackingOff(now)) {
+            final String message = format("bean %s failed %d times, next attempt in %d ms", dingName,
+                    failure.getCount(), NANOSECONDS.toMillis(failure.getRemainingNanos(now)));
+            throw new RuntimeException(message, failure.getCause());
+        }
+    }
+
+    // failures of outdated creations are not kept because the replacement might work
+    private void recordFailure(DingSlot slot, int version, DingName dingName, Throwable cause) {
+        final DingFailurePolicy failurePolicy = this.failurePolicy;
+        if (failurePolicy.getInitialBackoffNanos() == 0) {
+            return;
+        }
+        final DingFailure failure;
+        acquireLock();
+        try {
+            if (slot.getVersion() != version) {
+                return;
+            }
+            final DingFailure previous = slot.getFailure();
+            final int count = previous != null ? previous.getCount() + 1 : 1;
+            failure = new DingFailure(cause, count, System.nanoTime() + failurePolicy.getBackoffNanos(count));
+            slot.setFailure(failure);
+        } finally {
+            lock.unlock();
+        }
+        logger.warning(() -> format("bean %s failed %d times, backing off for %d ms: %s", dingName,
+                failure.getCount(), NANOSECONDS.toMillis(failurePolicy.getBackoffNanos(failure.getCount())), cause));
+    }
 
-    // must always be protected by the lock
-    private Map<DingName, DingMetadata<?>> metadataMap = new HashMap<>();
+    // returns the time spent waiting for a competing creator
+    private long acquireCreationLock(DingCreationLock creationLock) {
+        if (creationLock.tryLock()) {
+            return 0;
+        }
+        final long start = System.nanoTime();
+        final Thread currentThread = Thread.currentThread();
+        waitingCreations.put(currentThread, creationLock);
+        try {
+            while (!creationLock.tryLock(CREATION_WAIT_MILLIS, MILLISECONDS)) {
+                checkCreationDeadlock(currentThread, creationLock);
+            }
+            final long waitNanos = System.nanoTime() - start;
+            final DingMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.forBean(creationLock.getName()).recordLockWait(waitNanos);
+            }
+            return waitNanos;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(format("interrupted while waiting for creation of bean %s",
+                    creationLock.getName()), e);
+        } finally {
+            waitingCreations.remove(currentThread);
+        }
+    }
 
-    // is accessed by the current thread only and need no protection
-    private ThreadLocal<ArrayList<Object>> threadBeanList = ThreadLocal.withInitial(() -> new ArrayList<>());
+    // follows the owners of the creation locks until either a thread is found that does not wait or the chain leads
+    // back to the current thread
+    private void checkCreationDeadlock(Thread currentThread, DingCreationLock creationLock) {
+        final List<DingName> cycle = new ArrayList<>();
+        DingCreationLock nextLock = creationLock;
+        while (nextLock != null && !cycle.contains(nextLock.getName())) {
+            cycle.add(nextLock.getName());
+            final Thread owner = nextLock.getOwner();
+            if (owner == null) {
+                return;
+            }
+            if (owner == currentThread) {
+                cycle.add(creationLock.getName());
+                final String message = format("circular creation of bean %s between threads: %s",
+                        creationLock.getName(), cycle.stream().map(DingName::toString).collect(joining(" -> ")));
+                throw new RuntimeException(message);
+            }
+            nextLock = waitingCreations.get(owner);
+        }
+    }
 
-    private Lock lock = new ReentrantLock();
+    private <BeanType> CompletableFuture<BeanType> getSingletonAsync(DingSlot slot, DingName dingName) {
+        // The bean is read before the creation. A published bean without creation has got all its dependencies.
+        final BeanType bean = (BeanType) slot.getBean();
+        if (bean != null && slot.getCreation() == null) {
+            return CompletableFuture.completedFuture(bean);
+        }
+        // every caller gets its own future so that it cannot complete the shared creation
+        return createSingletonAsync(slot, dingName, false).thenApply(newBean -> (BeanType) newBean);
+    }
 
-    /**
-     * deletes all beans which is done during testing
-     */
-    public void deleteAllBeans() {
-        lock.lock();
+    // Asynchronous singletons are created once by the first caller and the running creation is shared by all callers
+    // through the slot until the dependencies have been injected. Other singletons are created by the usual protocol
+    // on the common ForkJoinPool.
+    private CompletableFuture<Object> createSingletonAsync(DingSlot slot, DingName dingName, boolean published) {
+        final DingMetadata<Object> metadata;
+        final CompletableFuture<Object> creation;
+        final int version;
+        acquireLock();
         try {
-            singletonBeanList.clear();
-            metadataMap.clear();
-            logger.info(() -> "delete all beans");
+            final Object bean = slot.getBean();
+            if (bean != null && (published || slot.getCreation() == null)) {
+                return CompletableFuture.completedFuture(bean);
+            }
+            if (slot.getCreation() != null) {
+                return slot.getCreation();
+            }
+            metadata = (DingMetadata<Object>) slot.getMetadata();
+            if (metadata == null) {
+                final CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new RuntimeException(format("bean %s does not exist", dingName)));
+                return failed;
+            }
+            if (!(metadata.getSupplier() instanceof DingAsyncSupplier)) {
+                return CompletableFuture.supplyAsync(() -> getSingletonBean(slot, dingName));
+            }
+            version = slot.getVersion();
+            creation = new CompletableFuture<>();
+            slot.setCreation(creation);
         } finally {
             lock.unlock();
         }
-    }
 
-    public void initializeSingletons() {
-        lock.lock();
+        // the creation stack detects suppliers that fetch their own bean synchronously
+        final Deque<DingName> creationStack = this.creationStack.get();
+        creationStack.push(dingName);
         try {
-            metadataMap.entrySet().stream()
-                    .map(Map.Entry::getKey)
-                    .forEach(key -> getSingletonBean(metadataMap.get(key).getIndex(), key));
+            createBeanAsync(metadata).whenComplete((newBean, throwable) ->
+                    completeSingletonAsync(slot, metadata, version, creation, newBean, throwable));
         } finally {
-            lock.unlock();
+            creationStack.pop();
         }
+        return creation;
     }
 
-    /**
-     * adds or replaces a bean
-     *
-     * @param dingName  unique name of the bean including namespace
-     * @param supplier  supplier that creates a new object of type BeanType
-     * @param beanClass type or some base type of the bean object which is used for error checking
-     */
-    public <BeanType> void addSingletonBean(DingName dingName, Supplier<BeanType> supplier,
-                                            Class<? extends BeanType> beanClass,
-                                            DingDependency<BeanType, ? extends Object>... dependencies) {
-        lock.lock();
+    private void completeSingletonAsync(DingSlot slot, DingMetadata<Object> metadata, int version,
+                                        CompletableFuture<Object> creation, Object newBean, Throwable throwable) {
+        final DingName dingName = metadata.getName();
+        final boolean outdated;
+        acquireLock();
         try {
-            if (metadataMap.containsKey(dingName)) {
-                final Class<?> oldBeanClass = metadataMap.get(dingName).getBeanClass();
-                if (!oldBeanClass.isAssignableFrom(beanClass)) {
-                    final String message = format("incompatible classes for bean %s, old: %s, new: %s", dingName,
-                            oldBeanClass, beanClass);
-                    throw new RuntimeException(message);
+            outdated = slot.getVersion() != version;
+            if (throwable == null && !outdated) {
+                slot.setBean(newBean);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (throwable != null) {
+            finishSingletonAsync(slot, creation, null, DingAsyncSupplier.unwrap(throwable));
+            return;
+        }
+        if (outdated) {
+            logger.fine(() -> format("discard outdated bean %s", dingName));
+            finishSingletonAsync(slot, creation, null, null);
+            createSingletonAsync(slot, dingName, false).whenComplete((bean, retryThrowable) -> {
+                if (retryThrowable != null) {
+                    creation.completeExceptionally(DingAsyncSupplier.unwrap(retryThrowable));
+                } else {
+                    creation.complete(bean);
                 }
-                final int index = metadataMap.get(dingName).getIndex();
-                singletonBeanList.set(index, null);
-                logger.info(() -> format("replace bean %s of type %s with type %s", dingName, oldBeanClass, beanClass));
+            });
+            return;
+        }
+        logger.finer(() -> format("created new bean %s of type %s", dingName, metadata.getBeanClass()));
 
-                resetParentsByDependencyName(dingName);
-                metadataMap.put(dingName, new DingMetadata<>(dingName, index, supplier, beanClass, SCOPE_SINGLETON, dependencies));
+        // The bean has been published before so that cyclic dependencies find it.
+        final CompletableFuture<?>[] injections;
+        try {
+            injections = metadata.getDependencies().stream()
+                    .map(dependency -> {
+                        final DingMetadata<?> depMetadata = getMetadata(slot.getContainer(), dependency.getName());
+                        checkDependencyScope(metadata, depMetadata);
+                        if (dependency.isHandle()) {
+                            dependency.getConsumer().accept(newBean, getHandle(dependency, depMetadata));
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return createSingletonAsync(depMetadata.getSlot(), depMetadata.getName(), true)
+                                .thenAccept(dependencyBean -> dependency.getConsumer().accept(newBean, dependencyBean));
+                    })
+                    .toArray(CompletableFuture[]::new);
+        } catch (RuntimeException e) {
+            finishSingletonAsync(slot, creation, null, e);
+            return;
+        }
+        CompletableFuture.allOf(injections).whenComplete((ignored, injectionThrowable) ->
+                finishSingletonAsync(slot, creation, newBean, injectionThrowable == null ? null
+                        : DingAsyncSupplier.unwrap(injectionThrowable)));
+    }
 
-            } else {
-                final int index = singletonBeanList.size();
-                singletonBeanList.add(null);
-                logger.fine(() -> format("add bean %s of type %s", dingName, beanClass));
-                metadataMap.put(dingName, new DingMetadata<>(dingName, index, supplier, beanClass, SCOPE_SINGLETON, dependencies));
+    // removes the creation from the slot before it is completed so that callers see either one or the other
+    private void finishSingletonAsync(DingSlot slot, CompletableFuture<Object> creation, Object bean,
+                                      Throwable throwable) {
+        acquireLock();
+        try {
+            if (slot.getCreation() == creation) {
+                slot.setCreation(null);
             }
         } finally {
             lock.unlock();
         }
+        if (throwable != null) {
+            creation.completeExceptionally(throwable);
+        } else if (bean != null) {
+            creation.complete(bean);
+        }
     }
 
-    private void resetParentsByDependencyName(DingName dependencyName) {
-        metadataMap.entrySet().stream()
-                .map(Map.Entry::getValue)
-                .filter(parent -> parent.getScope().equals(SCOPE_SINGLETON))
-                .forEach(parent -> resetParent(dependencyName, parent));
+    private static String creationCycle(Deque<DingName> creationStack, DingName dingName) {
+        final List<DingName> cycle = new ArrayList<>();
+        final Iterator<DingName> iterator = creationStack.descendingIterator();
+        while (iterator.hasNext()) {
+            final DingName name = iterator.next();
+            if (!cycle.isEmpty() || name.equals(dingName)) {
+                cycle.add(name);
+            }
+        }
+        cycle.add(dingName);
+        return cycle.stream().map(DingName::toString).collect(joining(" -> "));
     }
 
-    private void resetParent(DingName dependencyName, DingMetadata<?> parent) {
-        parent.getDependencies().stream()
-                .filter(dependency -> dependency.getName().equals(dependencyName))
-                .findAny()
-                .ifPresent(dependency -> {
-                    singletonBeanList.set(parent.getIndex(), null);
-                });
+    // returns the creation stack of the current thread unless it is already creating the bean
+    private Deque<DingName> checkCreationCycle(DingName dingName) {
+        final Deque<DingName> creationStack = this.creationStack.get();
+        if (creationStack.contains(dingName)) {
+            throw new RuntimeException(format("circular creation of bean %s: %s", dingName,
+                    creationCycle(creationStack, dingName)));
+        }
+        return creationStack;
     }
 
-    public <BeanType> void addThreadBean(DingName dingName, Supplier<BeanType> supplier,
-                                         Class<? extends BeanType> beanClass,
-                                         DingDependency<BeanType, ? extends Object>... dependencies) {
-        lock.lock();
-        try {
-            if (metadataMap.containsKey(dingName)) {
-                final Class<?> oldBeanClass = metadataMap.get(dingName).getBeanClass();
-                if (!oldBeanClass.isAssignableFrom(beanClass)) {
-                    final String message = format("incompatible classes for bean %s, old: %s, new: %s", dingName,
-                            oldBeanClass, beanClass);
-                    throw new RuntimeException(message);
-                }
-                final int index = metadataMap.get(dingName).getIndex();
-                singletonBeanList.set(index, null);
-                logger.info(() -> format("replace bean %s of type %s with type %s", dingName, oldBeanClass, beanClass));
-                metadataMap.put(dingName, new DingMetadata<>(dingName, index, supplier, beanClass, SCOPE_THREAD, dependencies));
-            } else {
-                final int index = singletonBeanList.size();
-                metadataMap.put(dingName, new DingMetadata<>(dingName, index, supplier, beanClass, SCOPE_THREAD, dependencies));
-            }
-        } finally {
-            lock.unlock();
+    private static <BeanType> DingMetadata<BeanType> getCreationMetadata(DingSlot slot, DingName dingName) {
+        final DingMetadata<BeanType> metadata = (DingMetadata<BeanType>) slot.getMetadata();
+        if (metadata == null) {
+            throw new RuntimeException(format("bean %s does not exist", dingName));
         }
+        return metadata;
     }
 
-    /**
-     * Same as @addBean but without namespace.
-     *
-     * @param beanName bean name without namespace
-     */
-    public <BeanType> void addSingletonBean(String beanName, Supplier<BeanType> supplier,
-                                            Class<? extends BeanType> beanClass,
-                                            DingDependency<BeanType, ? extends Object>... dependencies) {
-        addSingletonBean(dingName(beanName), supplier, beanClass, dependencies);
+    private static RuntimeException pooledBeanException(DingName dingName) {
+        return new RuntimeException(format("bean %s is pooled and must be borrowed from its pool", dingName));
     }
 
-    public <BeanType> void addThreadBean(String beanName, Supplier<BeanType> supplier,
-                                         Class<? extends BeanType> beanClass,
-                                         DingDependency<BeanType, ? extends Object>... dependencies) {
-        addThreadBean(dingName(beanName), supplier, beanClass, dependencies);
+    // publishes a new bean of the scopes that are not singletons, rejects it if it is outdated
+    private interface DingBeanStore {
+        boolean store(DingMetadata<?> metadata, int version, Object bean);
     }
 
-    // The default execution path is not protected by the lock for performance reasons. This method should be really
-    // fast for the default execution path.
-    private <BeanType> BeanType getSingletonBean(int index, DingName dingName) {
-        // This line is potentially accessed concurrently. It is protected by the synchronizedList.
-        BeanType bean = (BeanType) singletonBeanList.get(index);
+    // Creates a new bean of the current metadata of the slot. The bean is published before its dependencies are
+    // injected so that the dependencies might refer to it. Returns null if the store rejects the bean.
+    private <BeanType> BeanType construct(DingSlot slot, DingName dingName, DingBeanStore store) {
+        final Deque<DingName> creationStack = checkCreationCycle(dingName);
+        // the version is read before the metadata so that a concurrent replacement makes the new bean outdated
+        final int version = slot.getVersion();
+        final DingMetadata<BeanType> metadata = getCreationMetadata(slot, dingName);
+        creationStack.push(dingName);
+        try {
+            final BeanType newBean = createBean(metadata);
+            if (!store.store(metadata, version, newBean)) {
+                logger.fine(() -> format("discard outdated bean %s", dingName));
+                return null;
+            }
+            logger.finer(() -> format("created new bean %s of type %s", metadata.getName(), metadata.getBeanClass()));
+            injectDependencies(slot, metadata, newBean);
+            return newBean;
+        } finally {
+            creationStack.pop();
+        }
+    }
 
-        if (bean == null) {
-            lock.lock();
-            try {
-                bean = (BeanType) singletonBeanList.get(index);
-                if (bean == null) {
-                    final DingMetadata<BeanType> metadata = (DingMetadata<BeanType>) metadataMap.get(dingName);
-                    final BeanType newBean = metadata.getSupplier().get();
-                    bean = newBean;
+    private <BeanType> BeanType createBean(DingMetadata<BeanType> metadata) {
+        final DingMetrics metrics = this.metrics;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final BeanType bean;
+        try {
+            bean = metadata.getSupplier().get();
+            if (!metadata.getBeanClass().isAssignableFrom(bean.getClass())) {
+                final String message = format("incompatible class for bean %s, bean class is %s but got %s",
+                        metadata.getName(), bean.getClass(), metadata.getBeanClass());
+                throw new RuntimeException(message);
+            }
+        } catch (RuntimeException | Error e) {
+            if (metrics != null) {
+                metrics.forBean(metadata.getName()).recordFailure(System.nanoTime() - start);
+            }
+            throw e;
+        }
+        if (metrics != null) {
+            metrics.forBean(metadata.getName()).recordCreation(System.nanoTime() - start);
+        }
+        return bean;
+    }
+
+    private <BeanType> CompletableFuture<BeanType> createBeanAsync(DingMetadata<BeanType> metadata) {
+        final DingMetrics metrics = this.metrics;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        CompletableFuture<BeanType> future;
+        try {
+            future = ((DingAsyncSupplier<BeanType>) metadata.getSupplier()).getAsync();
+        } catch (RuntimeException | Error e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return future
+                .thenApply(bean -> {
                     if (!metadata.getBeanClass().isAssignableFrom(bean.getClass())) {
                         final String message = format("incompatible class for bean %s, bean class is %s but got %s",
                                 metadata.getName(), bean.getClass(), metadata.getBeanClass());
                         throw new RuntimeException(message);
                     }
-                    singletonBeanList.set(index, bean);
-                    logger.finer(() -> format("created new bean %s of type %s", metadata.getName(),
-                            metadata.getBeanClass()));
-                    metadata.getDependencies().stream()
-                            .forEach(dependency -> {
-                                final DingMetadata depMetadata = metadataMap.get(dependency.getName());
-                                if (depMetadata.getScope().equals(SCOPE_THREAD)) {
-                                    final String message = format("singleton bean %s depends on thread bean %s",
-                                            metadata.getName(), dependency.getName());
-                                    throw new RuntimeException(message);
-                                }
-                                final Object dependencyBean = getBean(depMetadata);
-                                dependency.getConsumer().accept(newBean, dependencyBean);
-                            });
-                }
-            } finally {
-                lock.unlock();
-            }
+                    return bean;
+                })
+                .whenComplete((bean, throwable) -> {
+                    if (metrics == null) {
+                        return;
+                    }
+                    if (throwable != null) {
+                        metrics.forBean(metadata.getName()).recordFailure(System.nanoTime() - start);
+                    } else {
+                        metrics.forBean(metadata.getName()).recordCreation(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static void checkDependencyScope(DingMetadata<?> metadata, DingMetadata<?> depMetadata) {
+        checkDependencyScope(metadata.getName(), metadata.getScope(), depMetadata.getName(), depMetadata.getScope());
+    }
+
+    // the injected bean must be assignable to the class that the dependency expects
+    private static void checkDependencyClass(DingName dingName, DingDependency<?, ?> dependency,
+                                             Class<?> depBeanClass) {
+        if (!dependency.getBeanClass().isAssignableFrom(depBeanClass)) {
+            throw new RuntimeException(format("bean %s expects bean %s of %s but its bean class is %s", dingName,
+                    dependency.getName(), dependency.getBeanClass(), depBeanClass));
+        }
+    }
+
+    // a strongly cached bean would keep an injected softly cached bean reachable
+    private static void checkSoftDependency(DingName dingName, DingCacheConfig config, DingName depName,
+                                            DingCacheConfig depConfig) {
+        if (config != null && !config.isSoftValues() && depConfig != null && depConfig.isSoftValues()) {
+            throw new RuntimeException(format("cached bean %s without soft values depends on cached bean %s with " +
+                    "soft values", dingName, depName));
+        }
+    }
+
+    // Singletons and pooled beans are shared between threads and units so that they may depend on singletons only.
+    // Cached beans may depend on other cached beans, too. Thread beans outlive units and cached beans.
+    private static void checkDependencyScope(DingName dingName, DingScope scope, DingName depName, DingScope depScope) {
+        final boolean compatible;
+        switch (scope) {
+            case SCOPE_SINGLETON:
+            case SCOPE_POOLED:
+                compatible = depScope.equals(SCOPE_SINGLETON);
+                break;
+            case SCOPE_CACHED:
+                compatible = depScope.equals(SCOPE_SINGLETON) || depScope.equals(SCOPE_CACHED);
+                break;
+            case SCOPE_THREAD:
+                compatible = !depScope.equals(SCOPE_UNIT) && !depScope.equals(SCOPE_POOLED)
+                        && !depScope.equals(SCOPE_CACHED);
+                break;
+            default:
+                compatible = !depScope.equals(SCOPE_POOLED);
+        }
+        if (!compatible) {
+            final String message = format("%s bean %s depends on %s bean %s", scope.getDescription(), dingName,
+                    depScope.getDescription(), depName);
+            throw new RuntimeException(message);
+        }
+    }
+
+    private DingMetadata<?> getMetadata(DingName dingName) {
+        final DingMetadata<?> metadata = lookupMetadata(dingName);
+        if (metadata == null) {
+            throw new RuntimeException(format("bean %s does not exist", dingName));
+        }
+        return metadata;
+    }
+
+    // Thread beans have no competing creators so that no lock is needed. The default execution path neither locks nor
+    // allocates. Outdated beans are released by their own thread because they might not be thread safe.
+    private <BeanType> BeanType getThreadBean(DingSlot slot, DingName dingName) {
+        final DingThreadBeans threadBeans = this.threadBeans.get();
+        final int epoch = threadBeansEpoch;
+        if (threadBeans.getEpoch() != epoch) {
+            threadBeans.releaseOutdated(epoch);
+        }
+        BeanType bean = (BeanType) threadBeans.get(slot.getIndex());
+        if (bean == null) {
+            bean = createThreadBean(threadBeans, slot, dingName);
         }
         return bean;
     }
 
-    private <BeanType> BeanType getThreadBean(int index, DingName dingName) {
-        final ArrayList<Object> beanList = threadBeanList.get();
-        IntStream.range(beanList.size(), index + 1).forEach(i -> beanList.add(null));
-        BeanType bean = (BeanType) beanList.get(index);
+    private <BeanType> BeanType createThreadBean(DingThreadBeans threadBeans, DingSlot slot, DingName dingName) {
+        return construct(slot, dingName, (metadata, version, bean) -> {
+            threadBeans.set(slot, version, bean);
+            return true;
+        });
+    }
+
+    private <BeanType> BeanType getUnitBean(DingSlot slot, DingName dingName) {
+        final DingUnit unit = DingUnit.current();
+        if (unit == null) {
+            throw new RuntimeException(format("no unit of work is open for bean %s", dingName));
+        }
+        BeanType bean = (BeanType) unit.get(slot);
         if (bean == null) {
-            lock.lock();
-            try {
-                final DingMetadata<BeanType> metadata = (DingMetadata<BeanType>) metadataMap.get(dingName);
-                final BeanType newBean = metadata.getSupplier().get();
-                bean = newBean;
-                if (!metadata.getBeanClass().isAssignableFrom(bean.getClass())) {
-                    final String message = format("incompatible class for bean %s, bean class is %s but got %s",
-                            metadata.getName(), bean.getClass(), metadata.getBeanClass());
-                    throw new RuntimeException(message);
-                }
-                beanList.set(index, bean);
-                logger.finer(() -> format("created new bean %s of type %s", metadata.getName(), metadata.getBeanClass()));
-                metadata.getDependencies().stream()
-                        .forEach(dependency -> {
-                            final Object dependencyBean = getBean(metadataMap.get(dependency.getName()));
-                            dependency.getConsumer().accept(newBean, dependencyBean);
-                        });
-            } finally {
-                lock.unlock();
-            }
+            bean = createUnitBean(unit, slot, dingName);
         }
         return bean;
     }
 
+    // The unit might be shared by several threads so that the creation is serialized per unit.
+    private <BeanType> BeanType createUnitBean(DingUnit unit, DingSlot slot, DingName dingName) {
+        checkCreationCycle(dingName);
+        unit.getCreationLock().lock();
+        try {
+            if (unit.isClosed()) {
+                throw new RuntimeException(format("unit of work is closed, cannot create bean %s", dingName));
+            }
+            final BeanType bean = (BeanType) unit.get(slot);
+            if (bean != null) {
+                return bean;
+            }
+            return construct(slot, dingName, (metadata, version, newBean) -> {
+                unit.set(slot, newBean);
+                return true;
+            });
+        } finally {
+            unit.getCreationLock().unlock();
+        }
+    }
+
+    // Pooled instances are handed to other threads so that they may depend on singletons only.
+    private <BeanType> BeanType createPooledBean(DingSlot slot, DingName dingName) {
+        return construct(slot, dingName, (metadata, version, bean) -> true);
+    }
+
+    private <BeanType> BeanType getCachedBean(DingSlot slot, DingName dingName) {
+        final DingCacheEntry entry = (DingCacheEntry) slot.getBean();
+        if (entry != null) {
+            final long now = System.nanoTime();
+            final BeanType bean = (BeanType) entry.get(now);
+            if (bean != null) {
+                if (maximumCachedBeans != Integer.MAX_VALUE) {
+                    slot.recordHit();
+                }
+                if (entry.startRefresh(now)) {
+                    ForkJoinPool.commonPool().execute(() -> refreshCachedBean(slot, dingName, entry));
+                }
+                return bean;
+            }
+        }
+        return createCachedBean(slot, dingName);
+    }
+
+    // Follows the creation protocol of singletons. The creation lock makes sure that only one of the concurrent
+    // callers creates the bean again.
+    private <BeanType> BeanType createCachedBean(DingSlot slot, DingName dingName) {
+        final DingCreationLock creationLock = slot.getCreationLock();
+        checkCreationCycle(dingName);
+        acquireCreationLock(creationLock);
+        try {
+            while (true) {
+                final DingCacheEntry entry = (DingCacheEntry) slot.getBean();
+                final BeanType bean = entry != null ? (BeanType) entry.get(System.nanoTime()) : null;
+                if (bean != null) {
+                    return bean;
+                }
+                final BeanType newBean = construct(slot, dingName, (metadata, version, created) -> {
+                    acquireLock();
+                    try {
+                        if (slot.getVersion() != version) {
+                            return false;
+                        }
+                        admitCachedBean(slot, new DingCacheEntry(created, metadata.getCacheConfig()));
+                        return true;
+                    } finally {
+                        lock.unlock();
+                    }
+                });
+                if (newBean != null) {
+                    return newBean;
+                }
+            }
+        } finally {
+            creationLock.unlock();
+        }
+    }
+
+    // Runs in the background and keeps the old bean until the new one has been created. A failed refresh is
+    // retried by the next get().
+    private void refreshCachedBean(DingSlot slot, DingName dingName, DingCacheEntry entry) {
+        final DingCreationLock creationLock = slot.getCreationLock();
+        try {
+            acquireCreationLock(creationLock);
+        } catch (RuntimeException e) {
+            entry.refreshFailed();
+            logger.warning(() -> format("failed to refresh bean %s: %s", dingName, e));
+            return;
+        }
+        try {
+            if (slot.getBean() != entry || slot.getMetadata() == null) {
+                return;
+            }
+            construct(slot, dingName, (metadata, version, bean) -> {
+                acquireLock();
+                try {
+                    if (slot.getVersion() != version || slot.getBean() != entry) {
+                        return false;
+                    }
+                    slot.setBean(new DingCacheEntry(bean, metadata.getCacheConfig()));
+                    resetCachedDependents(slot);
+                    return true;
+                } finally {
+                    lock.unlock();
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            entry.refreshFailed();
+            logger.warning(() -> format("failed to refresh bean %s: %s", dingName, e));
+        } finally {
+            creationLock.unlock();
+        }
+    }
+
+    // Stores a new entry in a slot that has no valid entry and makes room for it. Must be called with the lock held.
+    private void admitCachedBean(DingSlot slot, DingCacheEntry entry) {
+        if (maximumCachedBeans == Integer.MAX_VALUE) {
+            slot.setBean(entry);
+            return;
+        }
+        // the expired entry of the slot is dropped before the eviction so that the slot is not visited as a resident
+        if (slot.isQueued() && slot.getBean() != null) {
+            cachedResidents--;
+        }
+        slot.setBean(null);
+        evictCachedBeans(1);
+        slot.recordHit();
+        slot.setBean(entry);
+        if (!slot.isQueued()) {
+            slot.setQueued(true);
+            cachedQueue.add(slot);
+        }
+        cachedResidents++;
+    }
+
+    // Evicts cached beans with the CLOCK algorithm until there is room for the given number of beans. Slots without a
+    // bean are dropped, expired and collected beans are evicted and used beans get another round with one get less.
+    // Every step either removes a resident or consumes a counted get so that an admission takes amortized constant
+    // time. Must be called with the lock held.
+    private void evictCachedBeans(int admissions) {
+        final int room = maximumCachedBeans - admissions;
+        final long now = System.nanoTime();
+        while (cachedResidents > room) {
+            final DingSlot slot = cachedQueue.poll();
+            slot.setQueued(false);
+            final DingCacheEntry entry = (DingCacheEntry) slot.getBean();
+            if (entry == null) {
+                continue;
+            }
+            final boolean current = entry.get(now) != null;
+            if (current && slot.getFrequency() > 0) {
+                slot.setFrequency(slot.getFrequency() - 1);
+                slot.setQueued(true);
+                cachedQueue.add(slot);
+                continue;
+            }
+            slot.setBean(null);
+            cachedResidents--;
+            logger.fine(() -> format("evicted cached bean %s", slot.getCreationLock().getName()));
+            if (current) {
+                resetCachedDependents(slot);
+            }
+        }
+    }
+
+    // must be called with the lock held
+    private void clearCachedQueue() {
+        cachedQueue.forEach(slot -> slot.setQueued(false));
+        cachedQueue.clear();
+        cachedResidents = 0;
+    }
+
+    // The dependencies of frozen beans have been resolved and validated by freeze() so that they are neither looked
+    // up by name nor checked again.
+    private <BeanType> void injectDependencies(DingSlot slot, DingMetadata<BeanType> metadata, BeanType newBean) {
+        final List<DingDependency> dependencies = metadata.getDependencies();
+        final DingSnapshot snapshot = this.snapshot;
+        final DingFrozenBean<BeanType> frozenBean = snapshot != null ? snapshot.getFrozenBean(metadata) : null;
+        for (int i = 0; i < dependencies.size(); i++) {
+            final DingDependency<BeanType, Object> dependency = dependencies.get(i);
+            final DingMetadata<?> depMetadata;
+            if (frozenBean != null) {
+                depMetadata = frozenBean.getDependency(i);
+            } else {
+                depMetadata = getMetadata(slot.getContainer(), dependency.getName());
+                checkDependencyScope(metadata, depMetadata);
+            }
+            if (dependency.isHandle()) {
+                final DingFrozenBean<?> handle = frozenBean != null ? snapshot.getFrozenBean(depMetadata) : null;
+                dependency.getConsumer().accept(newBean, handle != null && !depMetadata.getScope().equals(SCOPE_POOLED)
+                        ? handle : getHandle(dependency, depMetadata));
+                continue;
+            }
+            if (frozenBean == null) {
+                checkSoftDependency(metadata.getName(), metadata.getCacheConfig(), depMetadata.getName(),
+                        depMetadata.getCacheConfig());
+            }
+            final Object dependencyBean = getBean(depMetadata);
+            if (metadata.getScope().equals(SCOPE_CACHED) && depMetadata.getScope().equals(SCOPE_CACHED)) {
+                limitLifetime(slot, newBean, depMetadata.getSlot(), dependencyBean);
+            }
+            dependency.getConsumer().accept(newBean, dependencyBean);
+        }
+    }
+
+    // A cached bean expires together with the cached beans injected into it. It expires immediately if an injected
+    // bean has been replaced in the meantime.
+    private static void limitLifetime(DingSlot slot, Object bean, DingSlot depSlot, Object depBean) {
+        final long now = System.nanoTime();
+        final DingCacheEntry entry = (DingCacheEntry) slot.getBean();
+        if (entry == null || entry.get(now) != bean) {
+            return;
+        }
+        final DingCacheEntry depEntry = (DingCacheEntry) depSlot.getBean();
+        if (depEntry != null && depEntry.get(now) == depBean) {
+            entry.limitLifetime(depEntry);
+        } else {
+            entry.expire();
+        }
+    }
+
+    // Refreshed and evicted cached beans are no longer current, so the beans they have been injected into are reset.
+    // Expired beans need no reset because their dependents expire with them. Must be called with the lock held.
+    private void resetCachedDependents(DingSlot slot) {
+        final DingName dingName = slot.getCreationLock().getName();
+        final DingContainer container = slot.getContainer();
+        if (container == null) {
+            final Set<DingName> changed = new HashSet<>(singleton(dingName));
+            changed.addAll(resetDependentSingletons(singleton(dingName)));
+            refreshContainers(null, changed, emptySet());
+            return;
+        }
+        final Map<DingName, DingMetadata<?>> localMap = container.getMetadataMap();
+        final Set<DingName> visited = new HashSet<>(singleton(dingName));
+        final Deque<DingName> pending = new ArrayDeque<>(singleton(dingName));
+        while (!pending.isEmpty()) {
+            final DingName depName = pending.poll();
+            for (DingName dependent : findDependents(container, localMap, depName)) {
+                final DingMetadata<?> local = localMap.get(dependent);
+                if (local != null && isResettable(local.getScope()) && injectsBean(local, depName)
+                        && visited.add(dependent)) {
+                    reset(local.getSlot());
+                    pending.add(dependent);
+                }
+            }
+        }
+        refreshContainers(container, visited, emptySet());
+    }
+
+    // the slot is kept when the bean is replaced so that the handle always fetches the current bean
+    private Supplier<?> getHandle(DingDependency<?, ?> dependency, DingMetadata<?> depMetadata) {
+        checkBeanClass(dependency.getName(), depMetadata, dependency.getBeanClass());
+        return getPlainBeanSupplier(depMetadata);
+    }
+
     private <BeanType> BeanType getBean(DingMetadata<BeanType> metadata) {
         switch (metadata.getScope()) {
             case SCOPE_SINGLETON:
-                return getSingletonBean(metadata.getIndex(), metadata.getName());
+                return getSingletonBean(metadata.getSlot(), metadata.getName());
             case SCOPE_THREAD:
-                return getThreadBean(metadata.getIndex(), metadata.getName());
+                return getThreadBean(metadata.getSlot(), metadata.getName());
+            case SCOPE_UNIT:
+                return getUnitBean(metadata.getSlot(), metadata.getName());
+            case SCOPE_CACHED:
+                return getCachedBean(metadata.getSlot(), metadata.getName());
+            case SCOPE_POOLED:
+                throw pooledBeanException(metadata.getName());
             default:
                 throw new RuntimeException(format("scope %s not supported", metadata.getScope()));
         }
     }
 
     private <BeanType> Supplier<BeanType> getBeanSupplier(DingMetadata<BeanType> metadata) {
-        lock.lock();
-        try {
-            logger.finer(() -> format("created wrapper for bean %s of type %s", metadata.getName(),
-                    metadata.getBeanClass()));
-            switch (metadata.getScope()) {
-                case SCOPE_SINGLETON:
-                    return () -> getSingletonBean(metadata.getIndex(), metadata.getName());
-                case SCOPE_THREAD:
-                    return () -> getThreadBean(metadata.getIndex(), metadata.getName());
-                default:
-                    throw new RuntimeException(format("scope %s not supported", metadata.getScope()));
+        final Supplier<BeanType> supplier = getPlainBeanSupplier(metadata);
+        final DingMetrics metrics = this.metrics;
+        if (metrics == null || metrics.getGetSampleRate() == 0) {
+            return supplier;
+        }
+        final DingBeanMetrics beanMetrics = metrics.forBean(metadata.getName());
+        final int sampleRate = metrics.getGetSampleRate();
+        return () -> {
+            if (ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+                beanMetrics.recordGets(sampleRate);
             }
-        } finally {
-            lock.unlock();
+            return supplier.get();
+        };
+    }
+
+    private <BeanType> Supplier<BeanType> getPlainBeanSupplier(DingMetadata<BeanType> metadata) {
+        logger.finer(() -> format("created wrapper for bean %s of type %s", metadata.getName(),
+                metadata.getBeanClass()));
+        final DingSlot slot = metadata.getSlot();
+        final DingName dingName = metadata.getName();
+        switch (metadata.getScope()) {
+            case SCOPE_SINGLETON:
+                return () -> {
+                    final BeanType bean = (BeanType) slot.getBean();
+                    return bean != null ? bean : createSingletonBean(slot, dingName);
+                };
+            case SCOPE_THREAD:
+                return () -> getThreadBean(slot, dingName);
+            case SCOPE_UNIT:
+                return () -> getUnitBean(slot, dingName);
+            case SCOPE_CACHED:
+                return () -> getCachedBean(slot, dingName);
+            case SCOPE_POOLED:
+                throw pooledBeanException(dingName);
+            default:
+                throw new RuntimeException(format("scope %s not supported", metadata.getScope()));
         }
     }
 
+    /**
+     * Fetches the bean of a key without lock and allocation. The key is resolved by its first lookup only and after
+     * deleteAllBeans().
+     *
+     * @param key interned key of the bean
+     * @return the actual bean
+     */
+    public <BeanType> BeanType get(DingKey<BeanType> key) {
+        DingSlot slot = key.getSlot();
+        // deleted slots have lost their metadata
+        if (slot == null || slot.getMetadata() == null) {
+            slot = resolve(key);
+        }
+        switch (slot.getScope()) {
+            case SCOPE_SINGLETON:
+                final BeanType bean = (BeanType) slot.getBean();
+                return bean != null ? bean : createSingletonBean(slot, key.getName());
+            case SCOPE_THREAD:
+                return getThreadBean(slot, key.getName());
+            case SCOPE_UNIT:
+                return getUnitBean(slot, key.getName());
+            case SCOPE_CACHED:
+                return getCachedBean(slot, key.getName());
+            default:
+                throw pooledBeanException(key.getName());
+        }
+    }
+
+    private DingSlot resolve(DingKey<?> key) {
+        final DingMetadata<?> metadata = getMetadata(key.getName());
+        checkBeanClass(key.getName(), metadata, key.getBeanClass());
+        if (metadata.getScope().equals(SCOPE_POOLED)) {
+            throw pooledBeanException(key.getName());
+        }
+        key.setSlot(metadata.getSlot());
+        logger.finer(() -> format("resolved key %s", key));
+        return metadata.getSlot();
+    }
+
     /**
      * fetches a supplier for the bean
      *
@@ -259,23 +2761,91 @@ public enum DingManager {
      * @return a supplier that can be used to fetch the actual bean
      */
     public <BeanType> Supplier<BeanType> getBean(DingName dingName, Class<? extends BeanType> beanClass) {
-        lock.lock();
-        try {
-            if (!metadataMap.containsKey(dingName)) {
-                throw new RuntimeException(format("bean %s does not exist", dingName));
-            }
-            final DingMetadata<BeanType> metadata = (DingMetadata<BeanType>) metadataMap.get(dingName);
-            if (!beanClass.isAssignableFrom(metadata.getBeanClass())) {
-                final String message = format("incompatible class for bean %s, bean class is %s but got %s", dingName,
-                        metadata.getBeanClass(), beanClass);
-                throw new RuntimeException(message);
+        final DingSnapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            final DingFrozenBean<BeanType> frozenBean = (DingFrozenBean<BeanType>) snapshot.getFrozenBean(dingName);
+            final DingMetadata<BeanType> metadata = frozenBean != null ? frozenBean.getMetadata() : null;
+            // the registered class is requested most of the time which needs no further check
+            if (metadata == null || metadata.getBeanClass() != beanClass) {
+                checkBeanClass(dingName, metadata, beanClass);
             }
-            return getBeanSupplier(metadata);
+            return !metadata.getScope().equals(SCOPE_POOLED) && metrics == null ? frozenBean
+                    : getBeanSupplier(metadata);
+        }
+        final DingMetadata<BeanType> metadata = (DingMetadata<BeanType>) lookupMetadata(dingName);
+        checkBeanClass(dingName, metadata, beanClass);
+        return getBeanSupplier(metadata);
+    }
+
+    private static void checkBeanClass(DingName dingName, DingMetadata<?> metadata, Class<?> beanClass) {
+        if (metadata == null) {
+            throw new RuntimeException(format("bean %s does not exist", dingName));
+        }
+        if (!beanClass.isAssignableFrom(metadata.getBeanClass())) {
+            final String message = format("incompatible class for bean %s, bean class is %s but got %s", dingName,
+                    metadata.getBeanClass(), beanClass);
+            throw new RuntimeException(message);
+        }
+    }
+
+    /**
+     * Compiles the registered beans into an immutable snapshot after the bootstrap. Afterwards getBean() returns
+     * precomputed suppliers and any further registration fails until deleteAllBeans() is called. Modules that have
+     * not been loaded yet are loaded first. The dependencies of all beans are resolved and validated in advance so
+     * that new beans are injected without looking up their dependencies.
+     *
+     * @throws RuntimeException if a bean depends on a missing bean or on a bean of an incompatible scope
+     */
+    public void freeze() {
+        new ArrayList<>(modules.keySet()).forEach(this::loadModule);
+        acquireLock();
+        try {
+            final Map<DingName, DingFrozenBean<?>> frozenBeans = new HashMap<>();
+            metadataMap.values().forEach(metadata -> {
+                final DingMetadata<?>[] frozenDependencies = metadata.getDependencies().stream()
+                        .map(dependency -> {
+                            final DingMetadata<?> depMetadata = metadataMap.get(dependency.getName());
+                            if (depMetadata == null) {
+                                final String message = format("bean %s depends on missing bean %s",
+                                        metadata.getName(), dependency.getName());
+                                throw new RuntimeException(message);
+                            }
+                            checkDependencyScope(metadata, depMetadata);
+                            if (dependency.isHandle()) {
+                                checkBeanClass(dependency.getName(), depMetadata, dependency.getBeanClass());
+                            } else {
+                                checkSoftDependency(metadata.getName(), metadata.getCacheConfig(),
+                                        depMetadata.getName(), depMetadata.getCacheConfig());
+                            }
+                            return depMetadata;
+                        })
+                        .toArray(DingMetadata<?>[]::new);
+                frozenBeans.put(metadata.getName(), newFrozenBean(metadata, frozenDependencies));
+            });
+            snapshot = new DingSnapshot(frozenBeans);
+            logger.info(() -> format("froze %d beans", metadataMap.size()));
         } finally {
             lock.unlock();
         }
     }
 
+    private static <BeanType> DingFrozenBean<BeanType> newFrozenBean(DingMetadata<BeanType> metadata,
+                                                                     DingMetadata<?>[] dependencies) {
+        return new DingFrozenBean<>(metadata, dependencies);
+    }
+
+    // called by frozen beans that are not created singletons
+    <BeanType> BeanType getFrozenBean(DingFrozenBean<BeanType> frozenBean) {
+        return getBean(frozenBean.getMetadata());
+    }
+
+    // must be called with the lock held
+    private void checkNotFrozen(DingName dingName) {
+        if (snapshot != null) {
+            throw new RuntimeException(format("beans are frozen, cannot add bean %s", dingName));
+        }
+    }
+
     /**
      * same as @getBean but without namespace
      *
@@ -284,4 +2854,35 @@ public enum DingManager {
     public <BeanType> Supplier<BeanType> getBean(String beanName, Class<? extends BeanType> beanClass) {
         return getBean(dingName(beanName), beanClass);
     }
+
+    /**
+     * Fetches a supplier of futures of a singleton that never blocks the caller. Asynchronous singletons are created
+     * by their supplier and all other singletons on the common ForkJoinPool. The futures complete after the
+     * dependencies of a new bean have been injected.
+     *
+     * @param dingName  unique name of the bean
+     * @param beanClass type or a subtype of the registered bean
+     * @return a supplier that can be used to fetch the actual bean asynchronously
+     */
+    public <BeanType> Supplier<CompletableFuture<BeanType>> getAsync(DingName dingName,
+                                                                     Class<? extends BeanType> beanClass) {
+        final DingMetadata<?> metadata = getMetadata(dingName);
+        checkBeanClass(dingName, metadata, beanClass);
+        if (!metadata.getScope().equals(SCOPE_SINGLETON)) {
+            throw new RuntimeException(format("%s bean %s cannot be fetched asynchronously",
+                    metadata.getScope().getDescription(), dingName));
+        }
+        final DingSlot slot = metadata.getSlot();
+        return () -> getSingletonAsync(slot, dingName);
+    }
+
+    /**
+     * Same as @getAsync but without namespace.
+     *
+     * @param beanName bean name without namespace
+     */
+    public <BeanType> Supplier<CompletableFuture<BeanType>> getAsync(String beanName,
+                                                                     Class<? extends BeanType> beanClass) {
+        return getAsync(dingName(beanName), beanClass);
+    }
 }
@@ -6,28 +6,35 @@ import java.util.function.Supplier;
 
 class DingMetadata<BeanType> {
     private final DingName name;
-    private int index;
+    private final DingSlot slot;
     private final Supplier<BeanType> supplier;
     private final Class<? extends BeanType> beanClass;
     private final DingScope scope;
     private final List<DingDependency> dependencies;
+    private final DingCacheConfig cacheConfig;
 
-    public DingMetadata(DingName name, int index, Supplier<BeanType> supplier, Class<? extends BeanType> beanClass,
+    public DingMetadata(DingName name, DingSlot slot, Supplier<BeanType> supplier, Class<? extends BeanType> beanClass,
                         DingScope scope, DingDependency... dependencies) {
+        this(name, slot, supplier, beanClass, scope, null, dependencies);
+    }
+
+    public DingMetadata(DingName name, DingSlot slot, Supplier<BeanType> supplier, Class<? extends BeanType> beanClass,
+                        DingScope scope, DingCacheConfig cacheConfig, DingDependency... dependencies) {
         this.name = name;
-        this.index = index;
+        this.slot = slot;
         this.supplier = supplier;
         this.beanClass = beanClass;
         this.scope = scope;
         this.dependencies = Arrays.asList(dependencies);
+        this.cacheConfig = cacheConfig;
     }
 
     public DingName getName() {
         return name;
     }
 
-    public int getIndex() {
-        return index;
+    public DingSlot getSlot() {
+        return slot;
     }
 
     public Supplier<BeanType> getSupplier() {
@@ -45,4 +52,11 @@ class DingMetadata<BeanType> {
     public List<DingDependency> getDependencies() {
         return dependencies;
     }
+
+    /**
+     * @return the configuration of a cached bean or null for all other scopes
+     */
+    public DingCacheConfig getCacheConfig() {
+        return cacheConfig;
+    }
 }
@@ -0,0 +1,61 @@
+package org.ding;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Collects the metrics of all beans while metrics are enabled.
+ */
+class DingMetrics implements DingMetricsMXBean {
+    private final int getSampleRate;
+    private final ConcurrentMap<DingName, DingBeanMetrics> beanMetricsMap = new ConcurrentHashMap<>();
+    private final LongAdder lockWaitCount = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    public DingMetrics(int getSampleRate) {
+        this.getSampleRate = getSampleRate;
+    }
+
+    public DingBeanMetrics forBean(DingName name) {
+        final DingBeanMetrics beanMetrics = beanMetricsMap.get(name);
+        return beanMetrics != null ? beanMetrics : beanMetricsMap.computeIfAbsent(name, DingBeanMetrics::new);
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWaitCount.increment();
+        lockWaitNanos.add(nanos);
+    }
+
+    @Override
+    public List<DingBeanStatistics> getBeanStatistics() {
+        return beanMetricsMap.values().stream()
+                .map(DingBeanMetrics::getStatistics)
+                .collect(toList());
+    }
+
+    @Override
+    public long getLockWaitCount() {
+        return lockWaitCount.sum();
+    }
+
+    @Override
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    @Override
+    public int getGetSampleRate() {
+        return getSampleRate;
+    }
+
+    @Override
+    public void reset() {
+        beanMetricsMap.values().forEach(DingBeanMetrics::reset);
+        lockWaitCount.reset();
+        lockWaitNanos.reset();
+    }
+}
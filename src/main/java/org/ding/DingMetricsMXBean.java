@@ -0,0 +1,33 @@
+package org.ding;
+
+import java.util.List;
+
+/**
+ * Runtime metrics of the DingManager that are published as org.ding:type=DingMetrics when metrics are enabled.
+ */
+public interface DingMetricsMXBean {
+    /**
+     * @return the metrics of every bean that has been created, replaced or fetched since metrics have been enabled
+     */
+    List<DingBeanStatistics> getBeanStatistics();
+
+    /**
+     * @return number of times a thread had to wait for the registry lock
+     */
+    long getLockWaitCount();
+
+    /**
+     * @return total time threads have waited for the registry lock
+     */
+    long getLockWaitNanos();
+
+    /**
+     * @return every n-th get() of a bean supplier is counted, 0 if gets are not counted
+     */
+    int getGetSampleRate();
+
+    /**
+     * resets all metrics to zero
+     */
+    void reset();
+}
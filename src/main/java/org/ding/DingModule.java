@@ -0,0 +1,47 @@
+package org.ding;
+
+import java.util.function.Consumer;
+
+/**
+ * Beans of a namespace that are registered when a bean of the namespace is looked up for the first time. The loader
+ * runs once and concurrent lookups wait for it.
+ */
+class DingModule {
+    private final String namespace;
+    private final Consumer<DingBatch> loader;
+
+    // thread that is currently running the loader, guarded by this
+    private Thread loadingThread;
+    private boolean loaded;
+
+    public DingModule(String namespace, Consumer<DingBatch> loader) {
+        this.namespace = namespace;
+        this.loader = loader;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Runs the loader unless it has already completed. A failed loader runs again with the next lookup. Lookups of
+     * the loader itself return immediately.
+     *
+     * @return true if the loader has completed
+     */
+    public synchronized boolean load(DingManager manager) {
+        if (loaded || loadingThread == Thread.currentThread()) {
+            return loaded;
+        }
+        loadingThread = Thread.currentThread();
+        try {
+            final DingBatch batch = manager.batch();
+            loader.accept(batch);
+            batch.commit();
+            loaded = true;
+        } finally {
+            loadingThread = null;
+        }
+        return true;
+    }
+}
@@ -6,6 +6,9 @@ public class DingName {
     private final String namespace;
     private final String name;
 
+    // names are used as hash keys on every lookup
+    private final int hash;
+
     public DingName(String name) {
         this(null, name);
     }
@@ -16,6 +19,8 @@ public class DingName {
         }
         this.namespace = namespace;
         this.name = name;
+        final int namespaceHash = namespace != null ? namespace.hashCode() : 0;
+        this.hash = 31 * namespaceHash + name.hashCode();
     }
 
     public static DingName dingName(String namespace, String name) {
@@ -26,6 +31,17 @@ public class DingName {
         return dingName(null, name);
     }
 
+    /**
+     * @return the namespace or null if the name has no namespace
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getName() {
+        return name;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -41,8 +57,7 @@ public class DingName {
 
     @Override
     public int hashCode() {
-        final int namespaceHash = namespace != null ? namespace.hashCode() : 0;
-        return 31 * namespaceHash + name.hashCode();
+        return hash;
     }
 
     @Override
@@ -0,0 +1,168 @@
+package org.ding;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A bounded pool of a pooled bean. It is kept when the bean or a singleton that it depends on is replaced but the
+ * instances created before are discarded when they are returned.
+ * <pre>
+ *     try (DingLease&lt;Parser&gt; parser = parserPool.borrow()) {
+ *         parser.get().parse(input);
+ *     }
+ * </pre>
+ */
+public class DingPool<BeanType> {
+    // the idle instances and the permits of a single bean definition
+    private static class State<BeanType> {
+        private final DingPoolConfig config;
+        private final Semaphore permits;
+        // used as a stack so that recently used instances are preferred
+        private final Deque<BeanType> idle = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean prefilled = new AtomicBoolean();
+        private volatile boolean retired;
+
+        private State(DingPoolConfig config) {
+            this.config = config;
+            this.permits = new Semaphore(config.getMaxSize());
+        }
+    }
+
+    // marks instances of policy GROW which are not returned to the pool
+    private static final Object OVERFLOW = new Object();
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final DingName name;
+    private final Supplier<BeanType> creator;
+    private volatile State<BeanType> state;
+
+    DingPool(DingName name, Supplier<BeanType> creator, DingPoolConfig config) {
+        this.name = name;
+        this.creator = creator;
+        this.state = new State<>(config);
+    }
+
+    /**
+     * discards all idle instances and the borrowed ones when they are returned, e.g. because a singleton that they
+     * depend on has been replaced
+     */
+    void reset() {
+        reset(state.config);
+    }
+
+    /**
+     * switches to a new bean definition and discards all idle instances
+     */
+    void reset(DingPoolConfig config) {
+        final State<BeanType> oldState = state;
+        state = new State<>(config);
+        oldState.retired = true;
+        BeanType bean;
+        while ((bean = oldState.idle.poll()) != null) {
+            discard(bean);
+        }
+    }
+
+    /**
+     * borrows an instance which is created by the supplier of the bean if no idle instance is available
+     *
+     * @return a lease that must be closed to return the instance
+     */
+    public DingLease<BeanType> borrow() {
+        final State<BeanType> state = this.state;
+        prefill(state);
+        if (!acquire(state)) {
+            logger.fine(() -> format("pool of bean %s is exhausted, create an additional instance", name));
+            return new DingLease<>(this, OVERFLOW, creator.get());
+        }
+        try {
+            final BeanType bean = state.idle.pollFirst();
+            return new DingLease<>(this, state, bean != null ? bean : creator.get());
+        } catch (RuntimeException e) {
+            state.permits.release();
+            throw e;
+        }
+    }
+
+    // returns false if an additional instance should be created
+    private boolean acquire(State<BeanType> state) {
+        if (state.permits.tryAcquire()) {
+            return true;
+        }
+        switch (state.config.getExhaustedPolicy()) {
+            case FAIL:
+                throw new RuntimeException(format("pool of bean %s is exhausted", name));
+            case GROW:
+                return false;
+            default:
+                try {
+                    if (state.permits.tryAcquire(state.config.getTimeoutNanos(), NANOSECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(format("interrupted while waiting for pool of bean %s", name), e);
+                }
+                throw new RuntimeException(format("timeout while waiting for pool of bean %s", name));
+        }
+    }
+
+    void release(Object origin, BeanType bean) {
+        if (origin == OVERFLOW) {
+            discard(bean);
+            return;
+        }
+        final State<BeanType> state = (State<BeanType>) origin;
+        if (state.retired) {
+            discard(bean);
+        } else {
+            state.idle.offerFirst(bean);
+            // the state might have been retired in the meantime
+            if (state.retired && state.idle.remove(bean)) {
+                discard(bean);
+            }
+        }
+        state.permits.release();
+    }
+
+    /**
+     * creates the configured number of idle instances unless this has already been done
+     */
+    public void prefill() {
+        prefill(state);
+    }
+
+    private void prefill(State<BeanType> state) {
+        if (state.config.getPrefill() > 0 && state.prefilled.compareAndSet(false, true)) {
+            for (int i = state.idle.size(); i < state.config.getPrefill(); i++) {
+                state.idle.offerFirst(creator.get());
+            }
+            logger.finer(() -> format("prefilled pool of bean %s with %d instances", name, state.config.getPrefill()));
+        }
+    }
+
+    /**
+     * @return the number of instances that are currently not borrowed
+     */
+    public int getIdleCount() {
+        return state.idle.size();
+    }
+
+    private void discard(BeanType bean) {
+        if (bean instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) bean).close();
+            } catch (Exception e) {
+                logger.warning(() -> format("failed to close discarded instance of bean %s: %s", name, e));
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.ding;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Immutable configuration of a pooled bean. It is created with poolConfig(maxSize) and adjusted with the with...
+ * methods, e.g. poolConfig(8).withPrefill(2).whenExhausted(BLOCK, 100, MILLISECONDS).
+ */
+public class DingPoolConfig {
+    /**
+     * defines what borrow() does when all instances of a pool are borrowed
+     */
+    public enum ExhaustedPolicy {
+        /**
+         * waits until an instance is returned or the timeout has elapsed
+         */
+        BLOCK,
+        /**
+         * fails immediately
+         */
+        FAIL,
+        /**
+         * creates an additional instance that is discarded when it is returned
+         */
+        GROW
+    }
+
+    private final int maxSize;
+    private final int prefill;
+    private final ExhaustedPolicy exhaustedPolicy;
+    private final long timeoutNanos;
+
+    private DingPoolConfig(int maxSize, int prefill, ExhaustedPolicy exhaustedPolicy, long timeoutNanos) {
+        if (maxSize < 1) {
+            throw new RuntimeException(format("pool size must be positive but is %d", maxSize));
+        }
+        if (prefill < 0 || prefill > maxSize) {
+            throw new RuntimeException(format("prefill must be between 0 and %d but is %d", maxSize, prefill));
+        }
+        this.maxSize = maxSize;
+        this.prefill = prefill;
+        this.exhaustedPolicy = exhaustedPolicy;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * @param maxSize maximum number of instances that can be borrowed at the same time
+     * @return a configuration without prefill that blocks without a timeout when the pool is exhausted
+     */
+    public static DingPoolConfig poolConfig(int maxSize) {
+        return new DingPoolConfig(maxSize, 0, ExhaustedPolicy.BLOCK, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param prefill number of instances that are created by the first borrow() or by DingPool.prefill()
+     */
+    public DingPoolConfig withPrefill(int prefill) {
+        return new DingPoolConfig(maxSize, prefill, exhaustedPolicy, timeoutNanos);
+    }
+
+    public DingPoolConfig whenExhausted(ExhaustedPolicy exhaustedPolicy) {
+        return new DingPoolConfig(maxSize, prefill, exhaustedPolicy, timeoutNanos);
+    }
+
+    /**
+     * @param timeout maximum time to wait for an instance with policy BLOCK
+     */
+    public DingPoolConfig whenExhausted(ExhaustedPolicy exhaustedPolicy, long timeout, TimeUnit unit) {
+        return new DingPoolConfig(maxSize, prefill, exhaustedPolicy, unit.toNanos(timeout));
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getPrefill() {
+        return prefill;
+    }
+
+    public ExhaustedPolicy getExhaustedPolicy() {
+        return exhaustedPolicy;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+}
@@ -0,0 +1,189 @@
+package org.ding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Singleton creations of the first seconds of a run. A profile is recorded by DingManager.recordProfile() and read
+ * by DingManager.replayProfile() on the next start.
+ */
+class DingProfile {
+    private static final int MAGIC = 0x44696e67;
+    private static final int VERSION = 1;
+
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    public DingProfile(long durationNanos) {
+        startNanos = System.nanoTime();
+        deadlineNanos = startNanos + durationNanos;
+    }
+
+    /**
+     * @param start         System.nanoTime() when the creation began
+     * @param creationNanos time spent in the supplier
+     * @param waitNanos     time spent waiting for a competing creator
+     * @return false if the recording is over
+     */
+    public boolean record(DingName name, long start, long creationNanos, long waitNanos) {
+        if (start - deadlineNanos > 0) {
+            return false;
+        }
+        entries.add(new Entry(name, (start - startNanos) / 1000, creationNanos / 1000, waitNanos / 1000));
+        return true;
+    }
+
+    public long getRemainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public List<Entry> getEntries() {
+        return entries.stream().sorted(comparingLong(Entry::getStartMicros)).collect(toList());
+    }
+
+    // writes a temporary file first so that a concurrent reader never sees a partial profile
+    public void write(Path file) throws IOException {
+        final List<Entry> entries = getEntries();
+        final Path directory = file.toAbsolutePath().getParent();
+        final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    final String namespace = entry.getName().getNamespace();
+                    out.writeBoolean(namespace != null);
+                    if (namespace != null) {
+                        out.writeUTF(namespace);
+                    }
+                    out.writeUTF(entry.getName().getName());
+                    out.writeLong(entry.getStartMicros());
+                    out.writeLong(entry.getCreationMicros());
+                    out.writeLong(entry.getWaitMicros());
+                }
+            }
+            Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public static List<Entry> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(format("%s is not a profile", file));
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(format("unsupported version %d of profile %s", version, file));
+            }
+            final int size = in.readInt();
+            final List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                final String namespace = in.readBoolean() ? in.readUTF() : null;
+                final DingName name = new DingName(namespace, in.readUTF());
+                entries.add(new Entry(name, in.readLong(), in.readLong(), in.readLong()));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Orders the recorded beans by their critical path, which is their own creation time plus the longest critical
+     * path of their dependencies. Beans that were created several times count with their longest creation.
+     *
+     * @param dependencies returns the current dependencies of a bean or null if the bean should not be created
+     */
+    public static List<DingName> criticalPathOrder(List<Entry> entries,
+                                                   Function<DingName, List<DingName>> dependencies) {
+        final Map<DingName, Long> creationMicros = new HashMap<>();
+        entries.forEach(entry -> creationMicros.merge(entry.getName(),
+                entry.getCreationMicros() + entry.getWaitMicros(), Math::max));
+        final Map<DingName, Long> criticalPaths = new HashMap<>();
+        creationMicros.keySet().forEach(name -> criticalPath(name, creationMicros, dependencies, criticalPaths,
+                new ArrayList<>()));
+        final List<DingName> order = creationMicros.keySet().stream()
+                .filter(name -> dependencies.apply(name) != null)
+                .sorted(comparingLong(name -> -criticalPaths.get(name)))
+                .collect(toList());
+        return Collections.unmodifiableList(order);
+    }
+
+    // the path stack stops at cycles, they are reported when the beans are created
+    private static long criticalPath(DingName name, Map<DingName, Long> creationMicros,
+                                     Function<DingName, List<DingName>> dependencies,
+                                     Map<DingName, Long> criticalPaths, List<DingName> path) {
+        final Long known = criticalPaths.get(name);
+        if (known != null) {
+            return known;
+        }
+        final List<DingName> depNames = dependencies.apply(name);
+        if (depNames == null || path.contains(name)) {
+            return 0;
+        }
+        path.add(name);
+        long longest = 0;
+        for (DingName depName : depNames) {
+            longest = Math.max(longest, criticalPath(depName, creationMicros, dependencies, criticalPaths, path));
+        }
+        path.remove(path.size() - 1);
+        final long criticalPath = creationMicros.getOrDefault(name, 0L) + longest;
+        criticalPaths.put(name, criticalPath);
+        return criticalPath;
+    }
+
+    public static class Entry {
+        private final DingName name;
+        private final long startMicros;
+        private final long creationMicros;
+        private final long waitMicros;
+
+        public Entry(DingName name, long startMicros, long creationMicros, long waitMicros) {
+            this.name = name;
+            this.startMicros = startMicros;
+            this.creationMicros = creationMicros;
+            this.waitMicros = waitMicros;
+        }
+
+        public DingName getName() {
+            return name;
+        }
+
+        /**
+         * @return the time between the start of the recording and the start of the creation
+         */
+        public long getStartMicros() {
+            return startMicros;
+        }
+
+        public long getCreationMicros() {
+            return creationMicros;
+        }
+
+        public long getWaitMicros() {
+            return waitMicros;
+        }
+    }
+}
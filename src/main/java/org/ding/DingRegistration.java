@@ -0,0 +1,68 @@
+package org.ding;
+
+import java.util.function.Supplier;
+
+/**
+ * A registration of a bean that has not yet been applied to the registry.
+ */
+class DingRegistration<BeanType> {
+    private final DingName name;
+    private final Supplier<BeanType> supplier;
+    private final Class<? extends BeanType> beanClass;
+    private final DingScope scope;
+    private final DingPoolConfig poolConfig;
+    private final DingCacheConfig cacheConfig;
+    private final DingDependency<BeanType, ? extends Object>[] dependencies;
+
+    public DingRegistration(DingName name, Supplier<BeanType> supplier, Class<? extends BeanType> beanClass,
+                            DingScope scope, DingPoolConfig poolConfig,
+                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        this(name, supplier, beanClass, scope, poolConfig, null, dependencies);
+    }
+
+    public DingRegistration(DingName name, Supplier<BeanType> supplier, Class<? extends BeanType> beanClass,
+                            DingScope scope, DingPoolConfig poolConfig, DingCacheConfig cacheConfig,
+                            DingDependency<BeanType, ? extends Object>... dependencies) {
+        this.name = name;
+        this.supplier = supplier;
+        this.beanClass = beanClass;
+        this.scope = scope;
+        this.poolConfig = poolConfig;
+        this.cacheConfig = cacheConfig;
+        this.dependencies = dependencies;
+    }
+
+    public DingName getName() {
+        return name;
+    }
+
+    public Supplier<BeanType> getSupplier() {
+        return supplier;
+    }
+
+    public Class<? extends BeanType> getBeanClass() {
+        return beanClass;
+    }
+
+    public DingScope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the configuration of a pooled bean or null for all other scopes
+     */
+    public DingPoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    /**
+     * @return the configuration of a cached bean or null for all other scopes
+     */
+    public DingCacheConfig getCacheConfig() {
+        return cacheConfig;
+    }
+
+    public DingDependency<BeanType, ? extends Object>[] getDependencies() {
+        return dependencies;
+    }
+}
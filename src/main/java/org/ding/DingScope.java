@@ -1,5 +1,16 @@
 package org.ding;
 
 enum DingScope {
-    SCOPE_SINGLETON, SCOPE_THREAD;
+    SCOPE_SINGLETON("singleton"), SCOPE_THREAD("thread"), SCOPE_UNIT("unit"), SCOPE_POOLED("pooled"),
+    SCOPE_CACHED("cached");
+
+    private final String description;
+
+    DingScope(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
 }
@@ -0,0 +1,31 @@
+package org.ding;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * is thrown by shutdown() after all beans have been processed if at least one bean could not be closed in time
+ */
+public class DingShutdownException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<DingName, Throwable> failures;
+
+    public DingShutdownException(Map<DingName, Throwable> failures) {
+        super(format("failed to close beans %s", failures.keySet()));
+        // the failures are copied because background work might still record failures
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.failures.values().forEach(this::addSuppressed);
+    }
+
+    /**
+     * @return the cause of the failure for every bean that could not be closed, a TimeoutException if it has not
+     * been closed in time
+     */
+    public Map<DingName, Throwable> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,157 @@
+package org.ding;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Holds the current bean of a name. The slot is kept when the bean is replaced so that the suppliers returned by
+ * getBean() can reference it directly and a lookup is a single volatile read.
+ */
+class DingSlot {
+    private static final int MAX_FREQUENCY = 15;
+
+    private final DingContainer container;
+    private final DingScope scope;
+    private final int index;
+    private final DingCreationLock creationLock;
+
+    private volatile Object bean;
+
+    private volatile DingMetadata<?> metadata;
+
+    // running creation of an asynchronous singleton, is read without lock but must always be written with the global
+    // lock
+    private volatile CompletableFuture<Object> creation;
+
+    // approximate number of recent gets of a cached bean, is incremented without synchronization and decremented by
+    // the eviction of cached beans
+    private volatile int frequency;
+
+    // true while the slot of a cached bean is in the eviction queue, must always be protected by the global lock
+    private boolean queued;
+
+    // last failure of a singleton while it is backing off, is written with the global lock held and read without lock
+    private volatile DingFailure failure;
+
+    // is incremented whenever the slot is reset, is written with the global lock held and read without lock by the
+    // thread beans
+    private volatile int version;
+
+    /**
+     * creates the slot of a singleton or pooled bean
+     */
+    public DingSlot(DingName name, DingScope scope) {
+        this(null, name, scope, -1);
+    }
+
+    /**
+     * @param container the child container that owns the bean or null for beans of the DingManager
+     * @param index     index into the beans of every thread or unit, both scopes have their own dense index space, or
+     *                  -1 for all other scopes
+     */
+    public DingSlot(DingContainer container, DingName name, DingScope scope, int index) {
+        this.container = container;
+        this.scope = scope;
+        this.index = index;
+        this.creationLock = new DingCreationLock(name);
+    }
+
+    /**
+     * @return the child container whose view resolves the dependencies of the bean or null for the DingManager
+     */
+    public DingContainer getContainer() {
+        return container;
+    }
+
+    /**
+     * @return the scope of the bean which never changes
+     */
+    public DingScope getScope() {
+        return scope;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the current metadata of the bean or null if the bean has been deleted
+     */
+    public DingMetadata<?> getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(DingMetadata<?> metadata) {
+        this.metadata = metadata;
+    }
+
+    public DingCreationLock getCreationLock() {
+        return creationLock;
+    }
+
+    public Object getBean() {
+        return bean;
+    }
+
+    public void setBean(Object bean) {
+        this.bean = bean;
+    }
+
+    public CompletableFuture<Object> getCreation() {
+        return creation;
+    }
+
+    public void setCreation(CompletableFuture<Object> creation) {
+        this.creation = creation;
+    }
+
+    public int getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(int frequency) {
+        this.frequency = frequency;
+    }
+
+    public boolean isQueued() {
+        return queued;
+    }
+
+    public void setQueued(boolean queued) {
+        this.queued = queued;
+    }
+
+    /**
+     * counts a get of a cached bean, a saturated counter is only read to avoid contention on hot beans
+     */
+    public void recordHit() {
+        final int frequency = this.frequency;
+        if (frequency < MAX_FREQUENCY) {
+            this.frequency = frequency + 1;
+        }
+    }
+
+    /**
+     * @return the last failure of the singleton or null if it has been created or not yet failed
+     */
+    public DingFailure getFailure() {
+        return failure;
+    }
+
+    public void setFailure(DingFailure failure) {
+        this.failure = failure;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * removes the bean and its failure and makes sure that a concurrent creation does not store an outdated bean
+     */
+    public void reset() {
+        bean = null;
+        creation = null;
+        failure = null;
+        version++;
+    }
+}
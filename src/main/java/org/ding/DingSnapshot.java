@@ -0,0 +1,28 @@
+package org.ding;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable compiled copy of the registered beans that is created by DingManager.freeze(). It is read without any
+ * lock.
+ */
+class DingSnapshot {
+    private final Map<DingName, DingFrozenBean<?>> frozenBeans;
+
+    public DingSnapshot(Map<DingName, DingFrozenBean<?>> frozenBeans) {
+        this.frozenBeans = Collections.unmodifiableMap(new HashMap<>(frozenBeans));
+    }
+
+    public DingFrozenBean<?> getFrozenBean(DingName dingName) {
+        return frozenBeans.get(dingName);
+    }
+
+    // the compiled form of the metadata or null if the metadata is not part of the snapshot, e.g. a child's copy
+    public <BeanType> DingFrozenBean<BeanType> getFrozenBean(DingMetadata<BeanType> metadata) {
+        final DingFrozenBean<?> frozenBean = frozenBeans.get(metadata.getName());
+        return frozenBean != null && frozenBean.getMetadata() == metadata ? (DingFrozenBean<BeanType>) frozenBean
+                : null;
+    }
+}
@@ -0,0 +1,98 @@
+package org.ding;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * Holds the thread beans of a single thread indexed by the index of their DingSlot. It is accessed by its own thread
+ * only and needs no protection, except by the DingManager after the thread has terminated.
+ */
+class DingThreadBeans {
+    private static final Logger logger = Logger.getLogger(DingThreadBeans.class.getName());
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] beans;
+
+    // slots and their versions at the creation of the beans, used to find outdated beans
+    private DingSlot[] slots;
+    private int[] versions;
+
+    // epoch of the DingManager when the beans have been checked for the last time
+    private int epoch;
+
+    /**
+     * @param capacity number of slots that are allocated up front, e.g. the number of registered thread beans
+     */
+    public DingThreadBeans(int epoch, int capacity) {
+        this.epoch = epoch;
+        final int initialCapacity = Math.max(capacity, INITIAL_CAPACITY);
+        beans = new Object[initialCapacity];
+        slots = new DingSlot[initialCapacity];
+        versions = new int[initialCapacity];
+    }
+
+    public Object get(int index) {
+        final Object[] beans = this.beans;
+        return index < beans.length ? beans[index] : null;
+    }
+
+    /**
+     * @param version version of the slot that has been read before the creation of the bean
+     */
+    public void set(DingSlot slot, int version, Object bean) {
+        final int index = slot.getIndex();
+        if (index >= beans.length) {
+            final int capacity = Math.max(index + 1, 2 * beans.length);
+            beans = Arrays.copyOf(beans, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        beans[index] = bean;
+        slots[index] = slot;
+        versions[index] = version;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * releases the beans that have been replaced, reset or deleted since they have been created
+     */
+    public void releaseOutdated(int epoch) {
+        this.epoch = epoch;
+        for (int i = beans.length - 1; i >= 0; i--) {
+            final DingSlot slot = slots[i];
+            if (beans[i] != null && (slot.getVersion() != versions[i] || slot.getMetadata() == null)) {
+                release(i);
+            }
+        }
+    }
+
+    /**
+     * releases all beans, the most recently registered beans are closed first
+     */
+    public void releaseAll() {
+        for (int i = beans.length - 1; i >= 0; i--) {
+            if (beans[i] != null) {
+                release(i);
+            }
+        }
+    }
+
+    private void release(int index) {
+        final Object bean = beans[index];
+        beans[index] = null;
+        slots[index] = null;
+        if (bean instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) bean).close();
+            } catch (Exception e) {
+                logger.warning(() -> format("failed to close thread bean %s: %s", bean, e));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.ding;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+
+import static org.ding.DingManager.dingManager;
+
+/**
+ * Creates worker threads whose thread beans are allocated and optionally created when the worker starts and released
+ * when it terminates. It is created by DingManager.threadFactory() or DingManager.forkJoinWorkerThreadFactory().
+ */
+class DingThreadFactory implements ThreadFactory, ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private final ThreadFactory delegate;
+    private final List<DingName> threadBeans;
+
+    /**
+     * @param delegate    creates the threads of the ThreadFactory, is not used for ForkJoinPool workers
+     * @param threadBeans names of the thread beans that are created by every worker before its first task
+     */
+    public DingThreadFactory(ThreadFactory delegate, List<DingName> threadBeans) {
+        this.delegate = delegate;
+        this.threadBeans = threadBeans;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        return delegate.newThread(() -> {
+            dingManager.startWorker(threadBeans);
+            try {
+                runnable.run();
+            } finally {
+                dingManager.releaseThreadBeans();
+            }
+        });
+    }
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        return new DingWorkerThread(pool);
+    }
+
+    private class DingWorkerThread extends ForkJoinWorkerThread {
+        DingWorkerThread(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            dingManager.startWorker(threadBeans);
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            try {
+                dingManager.releaseThreadBeans();
+            } finally {
+                super.onTermination(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.ding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * A unit of work like a request. Unit beans are created once per unit and released together when the unit is closed.
+ * The unit is bound to the thread that has opened it and can be carried to other threads by wrapping tasks or
+ * executors. A unit should be closed by the thread that has opened it, preferably with try-with-resources:
+ * <pre>
+ *     try (DingUnit unit = dingManager.openUnit()) {
+ *         executor.submit(unit.wrap(() -> handleRequest()));
+ *     }
+ * </pre>
+ */
+public class DingUnit implements AutoCloseable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final ThreadLocal<DingUnit> currentUnit = new ThreadLocal<>();
+
+    private static final Logger logger = Logger.getLogger(DingUnit.class.getName());
+
+    // the unit that was bound to the thread before this unit has been opened
+    private final DingUnit previous;
+
+    // serializes the creation of beans within this unit
+    private final Lock creationLock = new ReentrantLock();
+
+    // The slot of a bean at 2 * index and the bean at 2 * index + 1 so that a bean is never returned for another slot
+    // that has taken the index of a deleted slot. Is replaced by a larger copy under the creationLock when it is too
+    // small.
+    private volatile AtomicReferenceArray<Object> beans = new AtomicReferenceArray<>(2 * INITIAL_CAPACITY);
+
+    // in creation order, must always be protected by the creationLock
+    private final List<Object> createdBeans = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    private DingUnit(DingUnit previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * opens a new unit of work and binds it to the current thread until it is closed
+     */
+    static DingUnit open() {
+        final DingUnit unit = new DingUnit(currentUnit.get());
+        currentUnit.set(unit);
+        return unit;
+    }
+
+    /**
+     * @return the unit of work bound to the current thread or null
+     */
+    public static DingUnit current() {
+        return currentUnit.get();
+    }
+
+    /**
+     * wraps an executor so that every task runs within the unit of work that is current when the task is submitted
+     */
+    public static Executor propagate(Executor executor) {
+        return command -> executor.execute(wrapCurrent(command));
+    }
+
+    /**
+     * same as @propagate for an ExecutorService
+     */
+    public static ExecutorService propagate(ExecutorService executorService) {
+        return new DingUnitExecutorService(executorService);
+    }
+
+    static Runnable wrapCurrent(Runnable task) {
+        final DingUnit unit = current();
+        return () -> runWithin(unit, task);
+    }
+
+    private static void runWithin(DingUnit unit, Runnable task) {
+        final DingUnit previous = currentUnit.get();
+        currentUnit.set(unit);
+        try {
+            task.run();
+        } finally {
+            currentUnit.set(previous);
+        }
+    }
+
+    /**
+     * @return a task that runs within this unit of work on any thread
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> runWithin(this, task);
+    }
+
+    /**
+     * @return a task that runs within this unit of work on any thread
+     */
+    public <V> Callable<V> wrap(Callable<V> task) {
+        return () -> {
+            final DingUnit previous = currentUnit.get();
+            currentUnit.set(this);
+            try {
+                return task.call();
+            } finally {
+                currentUnit.set(previous);
+            }
+        };
+    }
+
+    Object get(DingSlot slot) {
+        final AtomicReferenceArray<Object> beans = this.beans;
+        final int index = 2 * slot.getIndex();
+        return index < beans.length() && beans.get(index) == slot ? beans.get(index + 1) : null;
+    }
+
+    // must be called with the creationLock held
+    void set(DingSlot slot, Object bean) {
+        AtomicReferenceArray<Object> beans = this.beans;
+        final int index = 2 * slot.getIndex();
+        if (index >= beans.length()) {
+            final AtomicReferenceArray<Object> newBeans =
+                    new AtomicReferenceArray<>(Math.max(index + 2, 2 * beans.length()));
+            for (int i = 0; i < beans.length(); i++) {
+                newBeans.set(i, beans.get(i));
+            }
+            this.beans = beans = newBeans;
+        }
+        // the bean is written first so that a reader that sees the slot sees the bean as well
+        beans.set(index + 1, bean);
+        beans.set(index, slot);
+        createdBeans.add(bean);
+    }
+
+    Lock getCreationLock() {
+        return creationLock;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Unbinds the unit from the current thread and releases all of its beans. AutoCloseable beans are closed in
+     * reverse creation order.
+     */
+    @Override
+    public void close() {
+        if (currentUnit.get() == this) {
+            currentUnit.set(previous);
+        }
+        creationLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            beans = new AtomicReferenceArray<>(0);
+            for (int i = createdBeans.size() - 1; i >= 0; i--) {
+                final Object bean = createdBeans.get(i);
+                if (bean instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) bean).close();
+                    } catch (Exception e) {
+                        logger.warning(() -> format("failed to close unit bean %s: %s", bean, e));
+                    }
+                }
+            }
+            logger.finer(() -> format("released %d unit beans", createdBeans.size()));
+            createdBeans.clear();
+        } finally {
+            creationLock.unlock();
+        }
+    }
+}
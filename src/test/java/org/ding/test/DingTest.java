@@ -1,20 +1,68 @@
 package org.ding.test;
 
+import org.ding.DingBeanStatistics;
+import org.ding.DingContainer;
 import org.ding.DingDependency;
+import org.ding.DingInitializationException;
+import org.ding.DingKey;
+import org.ding.DingLease;
+import org.ding.DingMetricsMXBean;
 import org.ding.DingName;
+import org.ding.DingPool;
+import org.ding.DingShutdownException;
+import org.ding.DingUnit;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static org.ding.DingCacheConfig.cacheConfig;
+import static org.ding.DingDependency.dingHandle;
+import static org.ding.DingFailurePolicy.failurePolicy;
+import static org.ding.DingKey.dingKey;
 import static org.ding.DingManager.dingManager;
 import static org.ding.DingName.dingName;
+import static org.ding.DingPoolConfig.ExhaustedPolicy.BLOCK;
+import static org.ding.DingPoolConfig.ExhaustedPolicy.FAIL;
+import static org.ding.DingPoolConfig.ExhaustedPolicy.GROW;
+import static org.ding.DingPoolConfig.poolConfig;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 public class DingTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void before() {
         dingManager.deleteAllBeans();
@@ -68,6 +116,293 @@ public class DingTest {
         assertThat(threadId, not(equalTo(oldThreadId)));
     }
 
+    @Test
+    public void testThreadBeanRelease() throws Exception {
+        dingManager.addThreadBean("closeable", FifthBean::new, FifthBean.class);
+        final Supplier<FifthBean> closeable = dingManager.getBean("closeable", FifthBean.class);
+        final FifthBean first = closeable.get();
+        assertThat(closeable.get(), sameInstance(first));
+
+        dingManager.addThreadBean("closeable", FifthBean::new, FifthBean.class);
+        final FifthBean second = closeable.get();
+        assertThat(second, not(sameInstance(first)));
+        assertThat(first.isClosed(), is(true));
+
+        dingManager.releaseThreadBeans();
+        assertThat(second.isClosed(), is(true));
+        final FifthBean third = closeable.get();
+        assertThat(third.isClosed(), is(false));
+
+        final FifthBean[] other = new FifthBean[1];
+        final Thread thread = new Thread(() -> other[0] = closeable.get());
+        thread.start();
+        thread.join();
+        assertThat(other[0].isClosed(), is(false));
+        dingManager.releaseDeadThreadBeans();
+        assertThat(other[0].isClosed(), is(true));
+
+        dingManager.deleteAllBeans();
+        dingManager.addThreadBean("other", FifthBean::new, FifthBean.class);
+        dingManager.getBean("other", FifthBean.class).get();
+        assertThat(third.isClosed(), is(true));
+    }
+
+    @Test
+    public void testThreadIndexes() throws Exception {
+        dingManager.addThreadBean("thread", StringBuilder::new, StringBuilder.class);
+        dingManager.addSingletonBean("singleton", StringBuilder::new, StringBuilder.class);
+        for (int i = 0; i < 40; i++) {
+            dingManager.addThreadBean("thread" + i, StringBuilder::new, StringBuilder.class);
+        }
+        final Supplier<StringBuilder> thread = dingManager.getBean("thread", StringBuilder.class);
+        final Supplier<StringBuilder> singleton = dingManager.getBean("singleton", StringBuilder.class);
+        final Supplier<StringBuilder> last = dingManager.getBean("thread39", StringBuilder.class);
+        thread.get().append("thread");
+        singleton.get().append("singleton");
+        last.get().append("last");
+        assertThat(thread.get().toString(), is("thread"));
+        assertThat(singleton.get().toString(), is("singleton"));
+        assertThat(last.get().toString(), is("last"));
+        assertThat(thread.get(), not(sameInstance(singleton.get())));
+    }
+
+    @Test
+    public void testUnits() throws Exception {
+        dingManager.addUnitBean("unit", FifthBean::new, FifthBean.class);
+        final Supplier<FifthBean> bean = dingManager.getBean("unit", FifthBean.class);
+        try {
+            bean.get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("no unit of work is open for bean unit"));
+        }
+
+        final FifthBean first;
+        try (DingUnit unit = dingManager.openUnit()) {
+            first = bean.get();
+            assertThat(bean.get(), sameInstance(first));
+            assertThat(DingUnit.current(), sameInstance(unit));
+        }
+        assertThat(first.isClosed(), is(true));
+        assertThat(DingUnit.current(), nullValue());
+
+        try (DingUnit unit = dingManager.openUnit()) {
+            assertThat(bean.get(), not(sameInstance(first)));
+        }
+    }
+
+    @Test
+    public void testUnitIndexReuse() throws Exception {
+        dingManager.addUnitBean("unit", FifthBean::new, FifthBean.class);
+        try (DingUnit unit = dingManager.openUnit()) {
+            final FifthBean fifth = dingManager.getBean("unit", FifthBean.class).get();
+            dingManager.deleteAllBeans();
+            // the new bean takes the index of the deleted one
+            dingManager.addUnitBean("other", StringBuilder::new, StringBuilder.class);
+            assertThat(dingManager.getBean("other", StringBuilder.class).get(), instanceOf(StringBuilder.class));
+            assertThat(fifth.isClosed(), is(false));
+        }
+    }
+
+    @Test
+    public void testUnitPropagation() throws Exception {
+        dingManager.addUnitBean("unit", FifthBean::new, FifthBean.class);
+        final Supplier<FifthBean> bean = dingManager.getBean("unit", FifthBean.class);
+        final ExecutorService executor = DingUnit.propagate(Executors.newFixedThreadPool(2));
+        try (DingUnit unit = dingManager.openUnit()) {
+            final FifthBean local = bean.get();
+            assertThat(executor.submit(bean::get).get(10, TimeUnit.SECONDS), sameInstance(local));
+            assertThat(executor.submit(unit.wrap(bean::get)).get(10, TimeUnit.SECONDS), sameInstance(local));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSingletonDependsOnUnit() throws Exception {
+        dingManager.addUnitBean("fourth", FourthBean::new, FourthBean.class);
+        dingManager.addSingletonBean("third", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("fourth", ThirdBean::setFourthBean, FourthBean.class));
+        try {
+            dingManager.getBean("third", ThirdBean.class).get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("singleton bean third depends on unit bean fourth"));
+        }
+    }
+
+    @Test
+    public void testPool() throws Exception {
+        dingManager.addPooledBean("pooled", StringBuilder::new, StringBuilder.class,
+                poolConfig(2).withPrefill(1).whenExhausted(FAIL));
+        final DingPool<StringBuilder> pool = dingManager.getPool("pooled", StringBuilder.class);
+        final StringBuilder first;
+        try (DingLease<StringBuilder> lease01 = pool.borrow(); DingLease<StringBuilder> lease02 = pool.borrow()) {
+            first = lease01.get();
+            assertThat(lease02.get(), not(sameInstance(first)));
+            try {
+                pool.borrow();
+                fail("missing exception");
+            } catch (RuntimeException e) {
+                assertThat(e.getMessage(), is("pool of bean pooled is exhausted"));
+            }
+        }
+        assertThat(pool.getIdleCount(), is(2));
+        try (DingLease<StringBuilder> lease = pool.borrow()) {
+            assertThat(lease.get(), sameInstance(first));
+        }
+
+        dingManager.addPooledBean("pooled", StringBuilder::new, StringBuilder.class, poolConfig(1).whenExhausted(GROW));
+        assertThat(pool.getIdleCount(), is(0));
+        try (DingLease<StringBuilder> lease01 = pool.borrow(); DingLease<StringBuilder> lease02 = pool.borrow()) {
+            assertThat(lease01.get(), not(sameInstance(first)));
+            assertThat(lease02.get(), not(sameInstance(lease01.get())));
+        }
+        assertThat(pool.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void testPoolDependency() throws Exception {
+        dingManager.addSingletonBean("greeting", () -> "Hello", String.class);
+        dingManager.addPooledBean("pooled", StringBuilder::new, StringBuilder.class, poolConfig(2),
+                new DingDependency<>("greeting", StringBuilder::append, String.class));
+        final DingPool<StringBuilder> pool = dingManager.getPool("pooled", StringBuilder.class);
+        final DingLease<StringBuilder> borrowed = pool.borrow();
+        try (DingLease<StringBuilder> lease = pool.borrow()) {
+            assertThat(lease.get().toString(), is("Hello"));
+        }
+        assertThat(pool.getIdleCount(), is(1));
+
+        dingManager.addSingletonBean("greeting", () -> "World", String.class);
+        assertThat(pool.getIdleCount(), is(0));
+        borrowed.close();
+        assertThat(pool.getIdleCount(), is(0));
+        try (DingLease<StringBuilder> lease = pool.borrow()) {
+            assertThat(lease.get().toString(), is("World"));
+        }
+    }
+
+    @Test
+    public void testPoolBlocks() throws Exception {
+        dingManager.addPooledBean("pooled", FifthBean::new, FifthBean.class,
+                poolConfig(1).whenExhausted(BLOCK, 10, TimeUnit.SECONDS));
+        final DingPool<FifthBean> pool = dingManager.getPool("pooled", FifthBean.class);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final DingLease<FifthBean> lease = pool.borrow();
+            final Future<FifthBean> other = executor.submit(() -> {
+                try (DingLease<FifthBean> otherLease = pool.borrow()) {
+                    return otherLease.get();
+                }
+            });
+            Thread.sleep(50);
+            assertThat(other.isDone(), is(false));
+            final FifthBean bean = lease.get();
+            lease.close();
+            assertThat(other.get(10, TimeUnit.SECONDS), sameInstance(bean));
+        } finally {
+            executor.shutdownNow();
+        }
+        try {
+            dingManager.getBean("pooled", FifthBean.class);
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean pooled is pooled and must be borrowed from its pool"));
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        dingManager.enableMetrics(1);
+        try {
+            dingManager.addSingletonBean("hello", () -> "Hello", String.class);
+            dingManager.addSingletonBean("broken", () -> {
+                throw new IllegalStateException("broken");
+            }, String.class);
+            final Supplier<String> hello = dingManager.getBean("hello", String.class);
+            hello.get();
+            hello.get();
+            dingManager.addSingletonBean("hello", () -> "World!", String.class);
+            hello.get();
+            try {
+                dingManager.getBean("broken", String.class).get();
+                fail("missing exception");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), is("broken"));
+            }
+
+            final DingMetricsMXBean metrics = dingManager.getMetrics();
+            final DingBeanStatistics helloStatistics = statistics(metrics, "hello");
+            assertThat(helloStatistics.getCreationCount(), is(2L));
+            assertThat(helloStatistics.getReplacementCount(), is(1L));
+            assertThat(helloStatistics.getEstimatedGetCount(), is(3L));
+            assertThat(LongStream.of(helloStatistics.getCreationHistogram()).sum(), is(2L));
+            assertThat(statistics(metrics, "broken").getFailureCount(), is(1L));
+
+            final ObjectName objectName = new ObjectName("org.ding:type=DingMetrics");
+            assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName), is(true));
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "BeanStatistics"),
+                    notNullValue());
+        } finally {
+            dingManager.disableMetrics();
+        }
+        assertThat(dingManager.getMetrics(), nullValue());
+    }
+
+    private static DingBeanStatistics statistics(DingMetricsMXBean metrics, String beanName) {
+        return metrics.getBeanStatistics().stream()
+                .filter(statistics -> statistics.getName().equals(beanName))
+                .findAny()
+                .get();
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        dingManager.addSingletonBean("third", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("fourth", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("fourth", FourthBean::new, FourthBean.class);
+        dingManager.addSingletonBean("config", () -> "config", CharSequence.class);
+        dingManager.addSingletonBean("sixth", SixthBean::new, SixthBean.class,
+                dingHandle("config", SixthBean::setConfig, CharSequence.class));
+        dingManager.freeze();
+
+        final Supplier<ThirdBean> third = dingManager.getBean("third", ThirdBean.class);
+        assertThat(dingManager.getBean("third", ThirdBean.class), sameInstance(third));
+        assertThat(third.get().getFourthBean(), sameInstance(dingManager.getBean("fourth", FourthBean.class).get()));
+        assertThat(dingManager.getBean("sixth", SixthBean.class).get().getConfig(),
+                sameInstance(dingManager.getBean("config", CharSequence.class)));
+        try {
+            dingManager.addSingletonBean("fourth", FourthBean::new, FourthBean.class);
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("beans are frozen, cannot add bean fourth"));
+        }
+        try {
+            dingManager.fork().addSingletonBean("fourth", FourthBean::new, FourthBean.class);
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("beans are frozen, cannot add bean fourth"));
+        }
+        try {
+            dingManager.addModule("frozen", batch -> batch.addSingletonBean(dingName("frozen", "bean"),
+                    FourthBean::new, FourthBean.class));
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("beans are frozen, cannot add module frozen"));
+        }
+        assertThat(dingManager.getBean("third", ThirdBean.class).get(), sameInstance(third.get()));
+
+        dingManager.deleteAllBeans();
+        dingManager.addSingletonBean("third", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("fourth", ThirdBean::setFourthBean, FourthBean.class));
+        try {
+            dingManager.freeze();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean third depends on missing bean fourth"));
+        }
+    }
+
     @Test
     public void testWrongTypeDuringGet() throws Exception {
         dingManager.addSingletonBean("hello", () -> "World!", String.class);
@@ -198,6 +533,391 @@ public class DingTest {
         assertThat(thirdBean.get().getFourthBean().whoami(), is("org.ding.test.FourthBean"));
     }
 
+    @Test
+    public void testInjectTransitive() throws Exception {
+        dingManager.addSingletonBean("top", FourthBean::new, FourthBean.class,
+                new DingDependency<>("middle", FourthBean::setThirdBean, ThirdBean.class));
+        dingManager.addSingletonBean("middle", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("leaf", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("leaf", FourthBean::new, FourthBean.class);
+        assertThat(dingManager.getDependentSingletons("leaf"), containsInAnyOrder(dingName("middle"), dingName("top")));
+        assertThat(dingManager.getDependentSingletons("top"), empty());
+
+        final Supplier<FourthBean> top = dingManager.getBean("top", FourthBean.class);
+        final Supplier<FourthBean> leaf = dingManager.getBean("leaf", FourthBean.class);
+        final FourthBean oldLeaf = top.get().getThirdBean().getFourthBean();
+        assertThat(oldLeaf, sameInstance(leaf.get()));
+
+        dingManager.addSingletonBean("leaf", FourthBean::new, FourthBean.class);
+        assertThat(top.get().getThirdBean().getFourthBean(), not(sameInstance(oldLeaf)));
+        assertThat(top.get().getThirdBean().getFourthBean(), sameInstance(leaf.get()));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        dingManager.batch()
+                .addSingletonBean("top", FourthBean::new, FourthBean.class,
+                        new DingDependency<>("middle", FourthBean::setThirdBean, ThirdBean.class))
+                .addSingletonBean("middle", ThirdBean::new, ThirdBean.class,
+                        new DingDependency<>("leaf", ThirdBean::setFourthBean, FourthBean.class))
+                .addSingletonBean("leaf", FourthBean::new, FourthBean.class)
+                .commit();
+        final Supplier<FourthBean> top = dingManager.getBean("top", FourthBean.class);
+        final FourthBean oldLeaf = top.get().getThirdBean().getFourthBean();
+
+        try {
+            dingManager.batch()
+                    .addSingletonBean("leaf", FourthBean::new, FourthBean.class)
+                    .addSingletonBean("other", ThirdBean::new, ThirdBean.class,
+                            new DingDependency<>("missing", ThirdBean::setFourthBean, FourthBean.class))
+                    .commit();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean other depends on missing bean missing"));
+        }
+        assertThat(top.get().getThirdBean().getFourthBean(), sameInstance(oldLeaf));
+
+        try {
+            dingManager.batch()
+                    .addSingletonBean("other", () -> "other", String.class)
+                    .addSingletonBean("wrong", FourthBean::new, FourthBean.class,
+                            new DingDependency<>("other", FourthBean::setThirdBean, ThirdBean.class))
+                    .commit();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean wrong expects bean other of class org.ding.test.ThirdBean but " +
+                    "its bean class is class java.lang.String"));
+        }
+        try {
+            dingManager.batch()
+                    .addSingletonBean("leaf", FourthBean::new, FourthBean.class)
+                    .addSingletonBean("wrong", ThirdBean::new, ThirdBean.class,
+                            new DingDependency<>("middle", ThirdBean::setFourthBean, FourthBean.class))
+                    .commit();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean wrong expects bean middle of class org.ding.test.FourthBean but " +
+                    "its bean class is class org.ding.test.ThirdBean"));
+        }
+        assertThat(top.get().getThirdBean().getFourthBean(), sameInstance(oldLeaf));
+        assertThat(dingManager.getBeansOfType(ThirdBean.class).keySet(), contains(dingName("middle")));
+
+        dingManager.batch()
+                .addSingletonBean("leaf", FourthBean::new, FourthBean.class)
+                .addSingletonBean("middle", ThirdBean::new, ThirdBean.class,
+                        new DingDependency<>("leaf", ThirdBean::setFourthBean, FourthBean.class))
+                .commit();
+        assertThat(top.get().getThirdBean().getFourthBean(), not(sameInstance(oldLeaf)));
+    }
+
+    @Test
+    public void testProfile() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("ding.profile");
+        dingManager.replayProfile(file, Runnable::run).get(5, TimeUnit.SECONDS);
+
+        dingManager.addSingletonBean("top", FourthBean::new, FourthBean.class,
+                new DingDependency<>("leaf", FourthBean::setThirdBean, ThirdBean.class));
+        dingManager.addSingletonBean("leaf", ThirdBean::new, ThirdBean.class);
+        dingManager.addSingletonBean(dingName("ns", "cold"), ThirdBean::new, ThirdBean.class);
+        final CompletableFuture<Void> written = dingManager.recordProfile(file, 100, TimeUnit.MILLISECONDS);
+        dingManager.getBean("top", FourthBean.class).get();
+        written.get(5, TimeUnit.SECONDS);
+        dingManager.getBean(dingName("ns", "cold"), ThirdBean.class).get();
+
+        dingManager.deleteAllBeans();
+        final AtomicInteger creations = new AtomicInteger();
+        dingManager.addSingletonBean("top", () -> {
+            creations.incrementAndGet();
+            return new FourthBean();
+        }, FourthBean.class, new DingDependency<>("leaf", FourthBean::setThirdBean, ThirdBean.class));
+        dingManager.addSingletonBean("leaf", ThirdBean::new, ThirdBean.class);
+        dingManager.addSingletonBean(dingName("ns", "cold"), () -> {
+            creations.incrementAndGet();
+            return new ThirdBean();
+        }, ThirdBean.class);
+        dingManager.replayProfile(file, Runnable::run).get(5, TimeUnit.SECONDS);
+        assertThat(creations.get(), is(1));
+        assertThat(dingManager.getBean("top", FourthBean.class).get().getThirdBean(), notNullValue());
+        assertThat(creations.get(), is(1));
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        final CompletableFuture<ThirdBean> leafFuture = new CompletableFuture<>();
+        final AtomicInteger creations = new AtomicInteger();
+        dingManager.addAsyncSingletonBean("top", () -> {
+            creations.incrementAndGet();
+            return CompletableFuture.completedFuture(new FourthBean());
+        }, FourthBean.class, new DingDependency<>("leaf", FourthBean::setThirdBean, ThirdBean.class));
+        dingManager.addAsyncSingletonBean("leaf", () -> leafFuture, ThirdBean.class);
+
+        final Supplier<CompletableFuture<FourthBean>> top = dingManager.getAsync("top", FourthBean.class);
+        final CompletableFuture<FourthBean> first = top.get();
+        final CompletableFuture<FourthBean> second = top.get();
+        assertThat(first.isDone(), is(false));
+        assertThat(second.isDone(), is(false));
+        assertThat(creations.get(), is(1));
+
+        final ThirdBean leaf = new ThirdBean();
+        leafFuture.complete(leaf);
+        assertThat(first.get(5, TimeUnit.SECONDS).getThirdBean(), sameInstance(leaf));
+        assertThat(second.get(5, TimeUnit.SECONDS), sameInstance(first.get()));
+        assertThat(dingManager.getBean("top", FourthBean.class).get(), sameInstance(first.get()));
+        assertThat(creations.get(), is(1));
+
+        dingManager.addSingletonBean("plain", () -> "Hello", String.class);
+        assertThat(dingManager.getAsync("plain", String.class).get().get(5, TimeUnit.SECONDS), is("Hello"));
+
+        final CompletableFuture<String> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("no connection"));
+        dingManager.addAsyncSingletonBean("failing", () -> failure, String.class);
+        try {
+            dingManager.getBean("failing", String.class).get();
+            fail("missing exception");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("no connection"));
+        }
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        final DingKey<CharSequence> key = dingKey("hello", CharSequence.class);
+        assertThat(dingKey(dingName("hello"), CharSequence.class), sameInstance(key));
+        try {
+            key.get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean hello does not exist"));
+        }
+
+        dingManager.addSingletonBean("hello", () -> new StringBuilder("Hello"), CharSequence.class);
+        final CharSequence hello = key.get();
+        assertThat(hello.toString(), is("Hello"));
+        assertThat(dingManager.get(key), sameInstance(hello));
+
+        dingManager.addSingletonBean("hello", () -> "World!", String.class);
+        assertThat(key.get(), is("World!"));
+
+        dingManager.deleteAllBeans();
+        dingManager.addThreadBean("hello", () -> new StringBuilder("Thread"), StringBuilder.class);
+        assertThat(key.get().toString(), is("Thread"));
+
+        try {
+            dingKey("hello", Integer.class).get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("incompatible class for bean hello, bean class is class " +
+                    "java.lang.StringBuilder but got class java.lang.Integer"));
+        }
+
+        // unused keys are not kept by the interning
+        final WeakReference<DingKey<StringBuilder>> unused =
+                new WeakReference<>(dingKey("unused", StringBuilder.class));
+        for (int i = 0; i < 100 && unused.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(unused.get(), nullValue());
+        assertThat(dingKey("hello", CharSequence.class), sameInstance(key));
+    }
+
+    @Test
+    public void testFork() throws Exception {
+        dingManager.addSingletonBean("top", FourthBean::new, FourthBean.class,
+                new DingDependency<>("middle", FourthBean::setThirdBean, ThirdBean.class));
+        dingManager.addSingletonBean("middle", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("leaf", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("leaf", FourthBean::new, FourthBean.class);
+        dingManager.addSingletonBean("other", () -> "Hello", String.class);
+        final Supplier<FourthBean> top = dingManager.getBean("top", FourthBean.class);
+
+        final DingContainer child = dingManager.fork();
+        final Supplier<FourthBean> childTop = child.getBean("top", FourthBean.class);
+        assertThat(childTop.get(), sameInstance(top.get()));
+
+        final FourthBean childLeaf = new FourthBean();
+        child.addSingletonBean("leaf", () -> childLeaf, FourthBean.class);
+        assertThat(childTop.get(), not(sameInstance(top.get())));
+        assertThat(childTop.get().getThirdBean().getFourthBean(), sameInstance(childLeaf));
+        assertThat(top.get().getThirdBean().getFourthBean(), not(sameInstance(childLeaf)));
+        assertThat(child.getBean("other", String.class).get(), sameInstance(dingManager.getBean("other",
+                String.class).get()));
+
+        final DingContainer grandChild = child.fork();
+        assertThat(grandChild.getBean("top", FourthBean.class).get(), sameInstance(childTop.get()));
+        final Supplier<String> other = grandChild.getBean("other", String.class);
+        assertThat(other.get(), is("Hello"));
+        grandChild.addSingletonBean("other", () -> "World!", String.class);
+        assertThat(other.get(), is("World!"));
+        assertThat(child.getBean("other", String.class).get(), is("Hello"));
+
+        try {
+            child.addSingletonBean("leaf", () -> "leaf", String.class);
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("incompatible classes for bean leaf, old: class org.ding.test.FourthBean, " +
+                    "new: class java.lang.String"));
+        }
+    }
+
+    @Test
+    public void testForkDeleteAllBeans() throws Exception {
+        dingManager.addSingletonBean("top", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("leaf", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("leaf", FourthBean::new, FourthBean.class);
+        final DingContainer child = dingManager.fork();
+        final FourthBean childLeaf = new FourthBean();
+        child.addSingletonBean("leaf", () -> childLeaf, FourthBean.class);
+        child.addThreadBean("thread", StringBuilder::new, StringBuilder.class);
+        final Supplier<ThirdBean> top = child.getBean("top", ThirdBean.class);
+        assertThat(top.get().getFourthBean(), sameInstance(childLeaf));
+
+        dingManager.deleteAllBeans();
+        for (String name : asList("top", "leaf", "thread")) {
+            try {
+                child.getBean(name, Object.class);
+                fail("missing exception");
+            } catch (RuntimeException e) {
+                assertThat(e.getMessage(), is(format("bean %s does not exist", name)));
+            }
+        }
+        try {
+            top.get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean top does not exist"));
+        }
+
+        dingManager.addSingletonBean("top", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("leaf", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("leaf", FourthBean::new, FourthBean.class);
+        assertThat(child.getBean("top", ThirdBean.class).get().getFourthBean(),
+                sameInstance(dingManager.getBean("leaf", FourthBean.class).get()));
+        assertThat(top.get(), sameInstance(dingManager.getBean("top", ThirdBean.class).get()));
+    }
+
+    @Test
+    public void testForkFollowsParent() throws Exception {
+        dingManager.addSingletonBean("a", Properties::new, Properties.class,
+                new DingDependency<>("b", (Properties a, String b) -> a.put("b", b), String.class),
+                new DingDependency<>("c", (Properties a, String c) -> a.put("c", c), String.class));
+        dingManager.addSingletonBean("b", () -> "b1", String.class);
+        dingManager.addSingletonBean("c", () -> "c1", String.class);
+
+        final DingContainer child = dingManager.fork();
+        child.addSingletonBean("b", () -> "b2", String.class);
+        final DingContainer grandChild = child.fork();
+        assertThat(child.getBean("a", Properties.class).get().get("c"), is("c1"));
+        assertThat(grandChild.getBean("a", Properties.class).get().get("c"), is("c1"));
+
+        dingManager.addSingletonBean("c", () -> "c2", String.class);
+        assertThat(child.getBean("a", Properties.class).get().get("b"), is("b2"));
+        assertThat(child.getBean("a", Properties.class).get().get("c"), is("c2"));
+        assertThat(grandChild.getBean("a", Properties.class).get().get("c"), is("c2"));
+
+        dingManager.addSingletonBean("d", Properties::new, Properties.class,
+                new DingDependency<>("b", (Properties d, String b) -> d.put("b", b), String.class));
+        assertThat(child.getBean("d", Properties.class).get().get("b"), is("b2"));
+        assertThat(dingManager.getBean("d", Properties.class).get().get("b"), is("b1"));
+    }
+
+    @Test
+    public void testCachedExpiry() throws Exception {
+        final AtomicInteger creations = new AtomicInteger();
+        dingManager.addCachedBean("rules", () -> "rules" + creations.incrementAndGet(), String.class,
+                cacheConfig().expireAfterWrite(50, TimeUnit.MILLISECONDS));
+        final Supplier<String> rules = dingManager.getBean("rules", String.class);
+        assertThat(rules.get(), is("rules1"));
+        assertThat(rules.get(), is("rules1"));
+        Thread.sleep(100);
+        assertThat(rules.get(), is("rules2"));
+
+        dingManager.addCachedBean("refreshed", () -> "refreshed" + creations.incrementAndGet(), String.class,
+                cacheConfig().refreshAfterWrite(50, TimeUnit.MILLISECONDS));
+        final Supplier<String> refreshed = dingManager.getBean("refreshed", String.class);
+        assertThat(refreshed.get(), is("refreshed3"));
+        Thread.sleep(100);
+        assertThat(refreshed.get(), is("refreshed3"));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (refreshed.get().equals("refreshed3") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(refreshed.get(), is("refreshed4"));
+
+        try {
+            dingManager.addThreadBean("thread", ThirdBean::new, ThirdBean.class,
+                    new DingDependency<>("rules", (bean, value) -> { }, String.class));
+            dingManager.getBean("thread", ThirdBean.class).get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("thread bean thread depends on cached bean rules"));
+        }
+    }
+
+    @Test
+    public void testCachedDependency() throws Exception {
+        dingManager.addCachedBean("inner", FourthBean::new, FourthBean.class,
+                cacheConfig().expireAfterWrite(50, TimeUnit.MILLISECONDS));
+        dingManager.addCachedBean("outer", ThirdBean::new, ThirdBean.class, cacheConfig(),
+                new DingDependency<>("inner", ThirdBean::setFourthBean, FourthBean.class));
+        final Supplier<FourthBean> inner = dingManager.getBean("inner", FourthBean.class);
+        final Supplier<ThirdBean> outer = dingManager.getBean("outer", ThirdBean.class);
+        final ThirdBean outer1 = outer.get();
+        assertThat(outer1.getFourthBean(), sameInstance(inner.get()));
+        assertThat(outer.get(), sameInstance(outer1));
+        Thread.sleep(100);
+        final FourthBean inner2 = inner.get();
+        assertThat(inner2, not(sameInstance(outer1.getFourthBean())));
+        assertThat(outer.get().getFourthBean(), sameInstance(inner2));
+
+        dingManager.addCachedBean("soft", FourthBean::new, FourthBean.class, cacheConfig().softValues());
+        dingManager.addCachedBean("strong", ThirdBean::new, ThirdBean.class, cacheConfig(),
+                new DingDependency<>("soft", ThirdBean::setFourthBean, FourthBean.class));
+        try {
+            dingManager.getBean("strong", ThirdBean.class).get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("cached bean strong without soft values depends on cached bean soft " +
+                    "with soft values"));
+        }
+    }
+
+    @Test
+    public void testCachedLimit() throws Exception {
+        final AtomicInteger creations = new AtomicInteger();
+        dingManager.addCachedBean("hot", () -> "hot" + creations.incrementAndGet(), String.class, cacheConfig());
+        dingManager.addCachedBean("warm", () -> "warm" + creations.incrementAndGet(), String.class, cacheConfig());
+        dingManager.addCachedBean("cold", () -> "cold" + creations.incrementAndGet(), String.class, cacheConfig());
+        final Supplier<String> hot = dingManager.getBean("hot", String.class);
+        final Supplier<String> warm = dingManager.getBean("warm", String.class);
+        final Supplier<String> cold = dingManager.getBean("cold", String.class);
+        dingManager.limitCachedBeans(2);
+        try {
+            assertThat(hot.get(), is("hot1"));
+            assertThat(warm.get(), is("warm2"));
+            hot.get();
+            hot.get();
+            warm.get();
+            assertThat(cold.get(), is("cold3"));
+            assertThat(hot.get(), is("hot1"));
+            assertThat(warm.get(), is("warm4"));
+            assertThat(creations.get(), is(4));
+        } finally {
+            dingManager.limitCachedBeans(Integer.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testScopeChange() throws Exception {
+        dingManager.addSingletonBean("hello", () -> "Hello", String.class);
+        try {
+            dingManager.addThreadBean("hello", () -> "World!", String.class);
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("cannot change scope of bean hello from singleton to thread"));
+        }
+    }
+
     @Test
     public void testConstructorInjection() throws Exception {
         dingManager.addSingletonBean("string", () -> "World!", String.class);
@@ -208,4 +928,402 @@ public class DingTest {
         final Supplier<StringBuilder> sb = dingManager.getBean("stringBuilder", StringBuilder.class);
         assertThat(sb.get().toString(), is("World!"));
     }
+
+    @Test
+    public void testCircularCreation() throws Exception {
+        dingManager.addSingletonBean("first", () -> "first" + dingManager.getBean("second", String.class).get(),
+                String.class);
+        dingManager.addSingletonBean("second", () -> "second" + dingManager.getBean("first", String.class).get(),
+                String.class);
+        try {
+            dingManager.getBean("first", String.class).get();
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("circular creation of bean first: first -> second -> first"));
+        }
+    }
+
+    @Test
+    public void testCircularCreationBetweenThreads() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        dingManager.addSingletonBean("first", () -> {
+            arriveAndAwait(latch);
+            return "first" + dingManager.getBean("second", String.class).get();
+        }, String.class);
+        dingManager.addSingletonBean("second", () -> {
+            arriveAndAwait(latch);
+            return "second" + dingManager.getBean("first", String.class).get();
+        }, String.class);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> first = executor.submit(() -> dingManager.getBean("first", String.class).get());
+            final Future<String> second = executor.submit(() -> dingManager.getBean("second", String.class).get());
+            for (Future<String> future : asList(first, second)) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    fail("missing exception");
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause().getMessage(), startsWith("circular creation of bean"));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelCreation() throws Exception {
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        dingManager.addSingletonBean("slow", () -> {
+            slowStarted.countDown();
+            await(release);
+            return "slow";
+        }, String.class);
+        dingManager.addSingletonBean("fast", () -> "fast", String.class);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> slow = executor.submit(() -> dingManager.getBean("slow", String.class).get());
+            assertThat(slowStarted.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(dingManager.getBean("fast", String.class).get(), is("fast"));
+            release.countDown();
+            assertThat(slow.get(10, TimeUnit.SECONDS), is("slow"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInitializeConcurrently() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        dingManager.addSingletonBean("third", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("fourth", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("fourth", () -> {
+            arriveAndAwait(latch);
+            return new FourthBean();
+        }, FourthBean.class);
+        dingManager.addSingletonBean("string", () -> {
+            arriveAndAwait(latch);
+            return "Hello";
+        }, String.class);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            dingManager.initializeSingletons(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(latch.getCount(), is(0L));
+        assertThat(dingManager.getBean("third", ThirdBean.class).get().getFourthBean(), notNullValue());
+    }
+
+    @Test
+    public void testInitializeFailures() throws Exception {
+        dingManager.addSingletonBean("third", ThirdBean::new, ThirdBean.class,
+                new DingDependency<>("fourth", ThirdBean::setFourthBean, FourthBean.class));
+        dingManager.addSingletonBean("fourth", () -> {
+            throw new IllegalStateException("broken");
+        }, FourthBean.class);
+        dingManager.addSingletonBean("string", () -> "Hello", String.class);
+        try {
+            dingManager.initializeSingletons();
+            fail("missing exception");
+        } catch (DingInitializationException e) {
+            assertThat(e.getFailures().keySet(), containsInAnyOrder(dingName("third"), dingName("fourth")));
+            assertThat(e.getFailures().get(dingName("fourth")).getMessage(), is("broken"));
+            assertThat(e.getFailures().get(dingName("third")).getMessage(),
+                    is("bean third not created because of failed dependencies [fourth]"));
+        }
+    }
+
+    @Test
+    public void testInitializeDeepChain() throws Exception {
+        final Queue<Integer> created = new ConcurrentLinkedQueue<>();
+        dingManager.addSingletonBean("chain0", () -> {
+            created.add(0);
+            return new StringBuilder("0");
+        }, StringBuilder.class);
+        for (int i = 1; i < 1500; i++) {
+            final int index = i;
+            dingManager.addSingletonBean("chain" + i, () -> {
+                        created.add(index);
+                        return new StringBuilder();
+                    }, StringBuilder.class,
+                    new DingDependency<>("chain" + (i - 1), StringBuilder::append, StringBuilder.class));
+        }
+        dingManager.initializeSingletons();
+        assertThat(created, contains(IntStream.range(0, 1500).boxed().toArray()));
+        assertThat(dingManager.getBean("chain1499", StringBuilder.class).get().length(), is(1));
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        final Queue<String> closed = new ConcurrentLinkedQueue<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        dingManager.addSingletonBean("inner", () -> new FifthBean() {
+            @Override
+            public void close() {
+                closed.add("inner");
+            }
+        }, FifthBean.class);
+        dingManager.addSingletonBean("outer", () -> new FifthBean() {
+            @Override
+            public void close() {
+                closed.add("outer");
+            }
+        }, FifthBean.class, new DingDependency<>("inner", (FifthBean bean, FifthBean inner) -> {
+        }, FifthBean.class));
+        dingManager.addSingletonBean("slow", () -> new FifthBean() {
+            @Override
+            public void close() {
+                await(release);
+            }
+        }, FifthBean.class);
+        final FifthBean inner = dingManager.getBean("inner", FifthBean.class).get();
+        dingManager.getBean("outer", FifthBean.class).get();
+        dingManager.getBean("slow", FifthBean.class).get();
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            dingManager.shutdown(executor, 100, 5000, TimeUnit.MILLISECONDS);
+            fail("missing exception");
+        } catch (DingShutdownException e) {
+            assertThat(e.getFailures().keySet(), contains(dingName("slow")));
+            assertThat(e.getFailures().get(dingName("slow")), instanceOf(TimeoutException.class));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(closed, contains("outer", "inner"));
+        assertThat(dingManager.getBean("inner", FifthBean.class).get(), not(sameInstance(inner)));
+    }
+
+    @Test
+    public void testShutdownDeepChain() throws Exception {
+        final List<FifthBean> beans = new ArrayList<>();
+        dingManager.addSingletonBean("chain0", FifthBean::new, FifthBean.class);
+        for (int i = 1; i < 5000; i++) {
+            dingManager.addSingletonBean("chain" + i, FifthBean::new, FifthBean.class,
+                    new DingDependency<>("chain" + (i - 1), (FifthBean bean, FifthBean dependency) -> {
+                    }, FifthBean.class));
+        }
+        for (int i = 0; i < 5000; i++) {
+            beans.add(dingManager.getBean("chain" + i, FifthBean.class).get());
+        }
+        dingManager.shutdown();
+        assertThat(beans.stream().allMatch(FifthBean::isClosed), is(true));
+    }
+
+    @Test
+    public void testShutdownRejected() throws Exception {
+        dingManager.addSingletonBean("inner", FifthBean::new, FifthBean.class);
+        dingManager.addSingletonBean("outer", FifthBean::new, FifthBean.class,
+                new DingDependency<>("inner", (FifthBean bean, FifthBean inner) -> {
+                }, FifthBean.class));
+        final FifthBean inner = dingManager.getBean("inner", FifthBean.class).get();
+        dingManager.getBean("outer", FifthBean.class).get();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        try {
+            dingManager.shutdown(executor, 100, 5000, TimeUnit.MILLISECONDS);
+            fail("missing exception");
+        } catch (DingShutdownException e) {
+            assertThat(e.getFailures().keySet(), containsInAnyOrder(dingName("inner"), dingName("outer")));
+        }
+        assertThat(inner.isClosed(), is(false));
+    }
+
+    @Test
+    public void testHandle() throws Exception {
+        dingManager.addSingletonBean("config", () -> "first", CharSequence.class);
+        dingManager.addSingletonBean("sixth", SixthBean::new, SixthBean.class,
+                dingHandle("config", SixthBean::setConfig, CharSequence.class));
+        final Supplier<SixthBean> sixth = dingManager.getBean("sixth", SixthBean.class);
+        final SixthBean first = sixth.get();
+        assertThat(first.getConfig().get(), is("first"));
+        assertThat(dingManager.getDependentSingletons("config"), empty());
+
+        dingManager.addSingletonBean("config", () -> "second", CharSequence.class);
+        assertThat(sixth.get(), sameInstance(first));
+        assertThat(first.getConfig().get(), is("second"));
+    }
+
+    @Test
+    public void testReplaceInBackground() throws Exception {
+        dingManager.addSingletonBean("fifth", FifthBean::new, FifthBean.class);
+        final Supplier<FifthBean> fifth = dingManager.getBean("fifth", FifthBean.class);
+        final FifthBean oldBean = fifth.get();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CompletableFuture<FifthBean> replacement = dingManager.replaceSingletonBean("fifth", () -> {
+            arriveAndAwait(started);
+            await(release);
+            return new FifthBean();
+        }, FifthBean.class, executor, bean -> ((FifthBean) bean).close());
+        await(started);
+        assertThat(fifth.get(), sameInstance(oldBean));
+
+        release.countDown();
+        final FifthBean newBean = replacement.get(10, TimeUnit.SECONDS);
+        assertThat(fifth.get(), sameInstance(newBean));
+        assertThat(oldBean.isClosed(), is(true));
+        assertThat(newBean.isClosed(), is(false));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFailureBackoff() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        dingManager.setFailurePolicy(failurePolicy().backoff(50, 1000, TimeUnit.MILLISECONDS));
+        try {
+            dingManager.addSingletonBean("flaky", () -> {
+                calls.incrementAndGet();
+                if (failing.get()) {
+                    throw new IllegalStateException("down");
+                }
+                return "up";
+            }, String.class);
+            final Supplier<String> flaky = dingManager.getBean("flaky", String.class);
+            try {
+                flaky.get();
+                fail("missing exception");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), is("down"));
+            }
+            try {
+                flaky.get();
+                fail("missing exception");
+            } catch (RuntimeException e) {
+                assertThat(e.getCause().getMessage(), is("down"));
+            }
+            assertThat(calls.get(), is(1));
+            assertThat(dingManager.getFailedBeans().keySet(), contains(dingName("flaky")));
+
+            failing.set(false);
+            Thread.sleep(100);
+            assertThat(flaky.get(), is("up"));
+            assertThat(calls.get(), is(2));
+            assertThat(dingManager.getFailedBeans().keySet(), empty());
+        } finally {
+            dingManager.setFailurePolicy(failurePolicy());
+        }
+    }
+
+    @Test
+    public void testThreadFactory() throws Exception {
+        final Queue<FifthBean> created = new ConcurrentLinkedQueue<>();
+        dingManager.addThreadBean("worker", () -> {
+            final FifthBean bean = new FifthBean();
+            created.add(bean);
+            return bean;
+        }, FifthBean.class);
+        final Supplier<FifthBean> worker = dingManager.getBean("worker", FifthBean.class);
+        final ExecutorService executor = Executors.newSingleThreadExecutor(
+                dingManager.threadFactory(Executors.defaultThreadFactory(), dingName("worker")));
+        final FifthBean bean = executor.submit(() -> {
+            assertThat(created.size(), is(1));
+            return worker.get();
+        }).get();
+        assertThat(created, contains(bean));
+        executor.shutdown();
+        // the executor terminates before its last worker thread has finished
+        for (int i = 0; i < 1000 && !bean.isClosed(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(bean.isClosed(), is(true));
+
+        final ForkJoinPool pool = new ForkJoinPool(1, dingManager.forkJoinWorkerThreadFactory(dingName("worker")),
+                null, false);
+        final FifthBean forkJoinBean = pool.submit(worker::get).get();
+        assertThat(created, hasSize(2));
+        assertThat(created, hasItem(forkJoinBean));
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        assertThat(forkJoinBean.isClosed(), is(true));
+
+        dingManager.addSingletonBean("string", () -> "Hello", String.class);
+        try {
+            dingManager.forkJoinWorkerThreadFactory(dingName("string"));
+            fail("missing exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("bean string is not a thread bean"));
+        }
+    }
+
+    @Test
+    public void testModule() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        dingManager.addModule("words", batch -> {
+            loads.incrementAndGet();
+            batch.addSingletonBean(dingName("words", "hello"), () -> "Hello", String.class);
+        });
+        dingManager.addModule("builders", batch -> batch.addSingletonBean(dingName("builders", "greeting"),
+                StringBuilder::new, StringBuilder.class,
+                new DingDependency<>(dingName("words", "hello"), StringBuilder::append, String.class)));
+        assertThat(loads.get(), is(0));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch latch = new CountDownLatch(4);
+        final List<Future<StringBuilder>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                arriveAndAwait(latch);
+                return dingManager.getBean(dingName("builders", "greeting"), StringBuilder.class).get();
+            }));
+        }
+        // singletons are published before their dependencies are injected, so they are checked after all threads
+        for (Future<StringBuilder> future : futures) {
+            assertThat(future.get().toString(), is("Hello"));
+        }
+        executor.shutdown();
+        assertThat(loads.get(), is(1));
+        assertThat(dingKey(dingName("words", "hello"), String.class).get(), is("Hello"));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void testBeansOfType() throws Exception {
+        dingManager.addSingletonBean("string", () -> "Hello", CharSequence.class);
+        dingManager.addSingletonBean(dingName("plugins", "builder"), () -> new StringBuilder("World"),
+                StringBuilder.class);
+        dingManager.addThreadBean(dingName("plugins", "fifth"), FifthBean::new, FifthBean.class);
+        final Map<DingName, Supplier<CharSequence>> sequences = dingManager.getBeansOfType(CharSequence.class);
+        assertThat(sequences.keySet(), containsInAnyOrder(dingName("string"), dingName("plugins", "builder")));
+        assertThat(dingManager.getBeansOfType(AutoCloseable.class).keySet(),
+                contains(dingName("plugins", "fifth")));
+        assertThat(dingManager.getBeansOfType(String.class).keySet(), empty());
+
+        dingManager.addSingletonBean("string", () -> "Hi", String.class);
+        assertThat(sequences.get(dingName("string")).get().toString(), is("Hi"));
+        assertThat(dingManager.getBeansOfType(String.class).keySet(), contains(dingName("string")));
+
+        final Set<DingName> extras = dingManager.getBeanNames("extras");
+        assertThat(extras, empty());
+        dingManager.addSingletonBean(dingName("extras", "late"), () -> "late", String.class);
+        assertThat(sequences.keySet(), hasItem(dingName("extras", "late")));
+        assertThat(sequences.size(), is(3));
+        assertThat(extras, contains(dingName("extras", "late")));
+
+        dingManager.addModule("lazy", batch -> batch.addSingletonBean(dingName("lazy", "one"), () -> 1,
+                Integer.class));
+        assertThat(dingManager.getBeanNames("plugins"),
+                containsInAnyOrder(dingName("plugins", "builder"), dingName("plugins", "fifth")));
+        assertThat(dingManager.getBeanNames("lazy"), contains(dingName("lazy", "one")));
+    }
+
+    private static void arriveAndAwait(CountDownLatch latch) {
+        latch.countDown();
+        await(latch);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package org.ding.test;
+
+public class FifthBean implements AutoCloseable {
+    private volatile boolean closed = false;
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
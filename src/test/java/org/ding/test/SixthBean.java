@@ -0,0 +1,15 @@
+package org.ding.test;
+
+import java.util.function.Supplier;
+
+public class SixthBean {
+    private Supplier<CharSequence> config;
+
+    public Supplier<CharSequence> getConfig() {
+        return config;
+    }
+
+    public void setConfig(Supplier<CharSequence> config) {
+        this.config = config;
+    }
+}